@@ -0,0 +1,129 @@
+package benchmarks;
+
+import entitys.Adress;
+import entitys.Animal;
+import entitys.PetStore;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import projections.StoreAgeCount;
+import services.AnimalAgeQueries;
+import services.BulkImporter;
+
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bancs d'essai des recherches par âge ({@link AnimalAgeQueries}) sur une base H2 embarquée de plusieurs millions
+ * d'animaux, nés sur les cinq dernières années.
+ *
+ * Avec `-p indexed=false`, les index sur la date de naissance sont supprimés avant les mesures (seul reste l'index de
+ * la clé étrangère vers le magasin), pour comparaison avec le schéma d'avant leur création.
+ * Exemple : `java -jar benchmarks/target/benchmarks.jar AnimalAgeBenchmark -p animals=2000000`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnimalAgeBenchmark {
+
+    // Période sur laquelle sont réparties les dates de naissance
+    private static final int BIRTH_DAYS = 5 * 365;
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    @Param({"1000000"})
+    public int animals;
+
+    @Param({"1000"})
+    public int stores;
+
+    private EntityManagerFactory emf;
+    private AnimalAgeQueries queries;
+    private final List<Long> storeIds = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emf = EmbeddedDatabase.create("TpPetstore");
+        List<PetStore> petStores = new ArrayList<>();
+        for (int i = 0; i < stores; i++) {
+            petStores.add(new PetStore("Magasin " + i, "Responsable " + i,
+                    new Adress(String.valueOf(i), "rue des bancs d'essai", "83000", "Toulon")));
+        }
+        new BulkImporter(emf).importAll(petStores);
+        petStores.forEach(store -> storeIds.add(store.getId()));
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            // Insertion directe en SQL : des millions d'entités persistées une à une rendraient la préparation trop longue
+            long firstStore = storeIds.get(0);
+            if (storeIds.get(storeIds.size() - 1) - firstStore != stores - 1) {
+                throw new IllegalStateException("Identifiants de magasins non consécutifs : " + storeIds);
+            }
+            em.createNativeQuery("insert into animal (ID, BIRTH_DATE, COLOR, STATUS, ID_PET_STORE) "
+                            + "select X, dateadd(day, -mod(X * 7919, " + BIRTH_DAYS + "), current_date), 'white', "
+                            + "'AVAILABLE', " + firstStore + " + mod(X, " + stores + ") from system_range(1, " + animals + ")")
+                    .executeUpdate();
+            em.createNativeQuery("insert into CAT (ID, CHIPLD) select ID, 'CHIP-' || ID from animal").executeUpdate();
+            if (!indexed) {
+                em.createNativeQuery("create index IDX_ANIMAL_PET_STORE on animal (ID_PET_STORE)").executeUpdate();
+                em.createNativeQuery("drop index IDX_ANIMAL_STORE_BIRTH_DATE_STATUS").executeUpdate();
+                em.createNativeQuery("drop index IDX_ANIMAL_BIRTH_DATE_STATUS").executeUpdate();
+            }
+            em.createNativeQuery("analyze").executeUpdate();
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+        queries = new AnimalAgeQueries(emf);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        emf.close();
+    }
+
+    /** Animaux d'un magasin nés depuis moins de 8 semaines. */
+    @Benchmark
+    public List<Animal> youngerThanEightWeeksInStore() {
+        long id = storeIds.get(ThreadLocalRandom.current().nextInt(storeIds.size()));
+        return queries.findYoungerThan(id, Period.ofWeeks(8));
+    }
+
+    /** Première page des animaux de plus d'un an, tous magasins confondus, du plus âgé au plus jeune. */
+    @Benchmark
+    public List<Animal> olderThanOneYearFirstPage() {
+        return queries.findOlderThan(Period.ofYears(1), 0, 20);
+    }
+
+    /** Nombre d'animaux nés il y a plus de 4 ans, tous magasins confondus. */
+    @Benchmark
+    public long countOlderThanFourYears() {
+        return queries.countOlderThan(Period.ofYears(4));
+    }
+
+    /** Nombre d'animaux de chaque magasin par tranche d'âge. */
+    @Benchmark
+    public List<StoreAgeCount> countByBucketPerStore() {
+        return queries.countByBucketPerStore();
+    }
+}
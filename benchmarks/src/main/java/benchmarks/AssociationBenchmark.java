@@ -0,0 +1,87 @@
+package benchmarks;
+
+import entitys.Animal;
+import entitys.Cat;
+import entitys.PetStore;
+import entitys.Product;
+import enumerations.ProdType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bancs d'essai de la gestion des associations en mémoire sur de grandes collections :
+ * `PetStore.addAnimal`, `PetStore.addProducts` et `PetStore.hashCode`.
+ * Chaque opération d'ajout est suivie du retrait correspondant pour que la taille des collections reste fixe.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssociationBenchmark {
+
+    @Param({"1000", "50000"})
+    public int size;
+
+    private PetStore store;
+    private Animal animal;
+    private Product product;
+    private Set<PetStore> stores;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new PetStore("Magasin", "Responsable", null);
+        LocalDate birthDate = LocalDate.now();
+        for (int i = 0; i < size; i++) {
+            store.addAnimal(new Cat(birthDate, "white", null, "CHIP-" + i));
+            store.addProducts(new Product(String.valueOf(i), "Produit " + i, ProdType.FOOD, 9.99));
+        }
+        animal = new Cat(birthDate, "black", null, "CHIP-X");
+        product = new Product("X", "Produit X", ProdType.ACCESSORY, 1.99);
+        stores = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            stores.add(new PetStore("Magasin " + i, "Responsable " + i, null));
+        }
+        stores.add(store);
+    }
+
+    @Benchmark
+    public boolean addAnimal() {
+        store.addAnimal(animal);
+        animal.setPetStore(null);
+        return store.getAnimals().isEmpty();
+    }
+
+    @Benchmark
+    public boolean addProducts() {
+        store.addProducts(product);
+        product.getPetStores().remove(store);
+        return store.getProducts().remove(product);
+    }
+
+    @Benchmark
+    public int petStoreHashCode() {
+        return store.hashCode();
+    }
+
+    @Benchmark
+    public boolean petStoreSetLookup() {
+        return stores.contains(store);
+    }
+}
@@ -0,0 +1,159 @@
+package benchmarks;
+
+import entitys.PetStore;
+import entitys.Product;
+import enumerations.ProdType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import services.CheckoutService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bancs d'essai du passage en caisse sous forte concurrence : 16 caisses vendent en parallèle
+ * les mêmes {@value #PRODUCTS} produits d'un même magasin.
+ *
+ * `checkout` passe par {@link CheckoutService} (réservations en mémoire écrites par lots) ;
+ * `checkoutDirect` exécute une mise à jour gardée de la base par vente, en une transaction, pour comparaison.
+ * Après chaque itération, le stock en base est comparé aux ventes acceptées : l'itération échoue en cas de survente
+ * ou de vente perdue. Avec un petit stock (`-p stock=1000`), les produits sont épuisés dès le début de l'itération
+ * et le banc mesure surtout les ventes refusées.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class CheckoutBenchmark {
+
+    private static final int PRODUCTS = 10;
+
+    /**
+     * Magasin et produits en stock, communs à toutes les caisses.
+     */
+    @State(Scope.Benchmark)
+    public static class Shop {
+
+        @Param({"1000", "10000000"})
+        public int stock;
+
+        EntityManagerFactory emf;
+        CheckoutService service;
+        Long storeId;
+        final List<Long> productIds = new ArrayList<>();
+
+        // Ventes acceptées pendant l'itération, et stock en base au début de l'itération
+        final LongAdder sold = new LongAdder();
+        long stockBefore;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            emf = EmbeddedDatabase.create("TpPetstore");
+            EntityManager em = emf.createEntityManager();
+            em.getTransaction().begin();
+            PetStore store = new PetStore("Magasin", "Responsable", null);
+            em.persist(store);
+            for (int i = 0; i < PRODUCTS; i++) {
+                Product product = new Product("P" + i, "Produit " + i, ProdType.FOOD, 9.99);
+                em.persist(product);
+                store.addProducts(product);
+            }
+            em.getTransaction().commit();
+            em.close();
+            storeId = store.getId();
+            store.getProducts().forEach(product -> productIds.add(product.getId()));
+            service = new CheckoutService(emf);
+        }
+
+        @Setup(Level.Iteration)
+        public void restock() {
+            for (Long productId : productIds) {
+                service.restock(storeId, productId, stock);
+            }
+            sold.reset();
+            stockBefore = stockInDatabase();
+        }
+
+        @TearDown(Level.Iteration)
+        public void verify() {
+            service.flush();
+            long stockAfter = stockInDatabase();
+            if (stockAfter < 0 || stockBefore - stockAfter != sold.sum()) {
+                throw new IllegalStateException("Stock incohérent : " + stockBefore + " - " + sold.sum()
+                        + " vendus != " + stockAfter + " en base");
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            service.close();
+            emf.close();
+        }
+
+        long randomProduct() {
+            return productIds.get(ThreadLocalRandom.current().nextInt(PRODUCTS));
+        }
+
+        private long stockInDatabase() {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.createQuery("select coalesce(sum(s.quantity), 0) from Stock s", Long.class).getSingleResult();
+            } finally {
+                em.close();
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean checkout(Shop shop) {
+        boolean accepted = shop.service.checkout(shop.storeId, shop.randomProduct(), 1);
+        if (accepted) {
+            shop.sold.increment();
+        }
+        return accepted;
+    }
+
+    @Benchmark
+    public boolean checkoutDirect(Shop shop) {
+        EntityManager em = shop.emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            int rows = em.createQuery("update versioned Stock s set s.quantity = s.quantity - 1 " +
+                            "where s.petStore.id = :store and s.product.id = :product and s.quantity >= 1")
+                    .setParameter("store", shop.storeId)
+                    .setParameter("product", shop.randomProduct())
+                    .executeUpdate();
+            em.getTransaction().commit();
+            if (rows > 0) {
+                shop.sold.increment();
+            }
+            return rows > 0;
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+}
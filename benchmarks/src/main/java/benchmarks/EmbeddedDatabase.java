@@ -0,0 +1,63 @@
+package benchmarks;
+
+import jakarta.persistence.EntityManagerFactory;
+import services.PersistenceBootstrap;
+import services.ShardRouter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Base H2 en mémoire utilisée par les bancs d'essai, à la place de la base MariaDB de l'unité "TpPetstore".
+ * Chaque appel crée une base vierge (ou une base vierge par shard), avec le mapping et la configuration Hibernate de l'unité.
+ */
+public final class EmbeddedDatabase {
+
+    private EmbeddedDatabase() {
+    }
+
+    /**
+     * Crée une fabrique d'EntityManager sur une nouvelle base H2 en mémoire.
+     *
+     * @param unit Le nom de l'unité de persistance ("TpPetstore" ou "TpPetstore-single-table").
+     * @return La fabrique d'EntityManager, à fermer en fin de banc d'essai.
+     */
+    public static EntityManagerFactory create(String unit) {
+        Map<String, Object> properties = properties();
+        properties.put("jakarta.persistence.jdbc.url", newUrl());
+        return PersistenceBootstrap.start(unit, properties);
+    }
+
+    /**
+     * Crée un routeur sur plusieurs nouvelles bases H2 en mémoire, une par shard.
+     *
+     * @param unit Le nom de l'unité de persistance ("TpPetstore" ou "TpPetstore-single-table").
+     * @param shards Le nombre de shards.
+     * @return Le routeur, à fermer en fin de banc d'essai.
+     */
+    public static ShardRouter createShards(String unit, int shards) {
+        List<String> urls = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            urls.add(newUrl());
+        }
+        return ShardRouter.open(unit, urls, properties());
+    }
+
+    private static String newUrl() {
+        return "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MariaDB";
+    }
+
+    private static Map<String, Object> properties() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("jakarta.persistence.jdbc.driver", "org.h2.Driver");
+        properties.put("jakarta.persistence.jdbc.user", "sa");
+        properties.put("jakarta.persistence.jdbc.password", "");
+        properties.put("jakarta.persistence.schema-generation.database.action", "drop-and-create");
+        properties.put("hibernate.show_sql", "false");
+        properties.put("hibernate.format_sql", "false");
+        return properties;
+    }
+}
@@ -0,0 +1,158 @@
+package benchmarks;
+
+import entitys.Adress;
+import entitys.Animal;
+import entitys.Cat;
+import entitys.Fish;
+import entitys.PetStore;
+import enumerations.FishLivEnv;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import services.BulkImporter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bancs d'essai comparant les stratégies d'héritage de la hiérarchie `Animal` (JOINED et SINGLE_TABLE) sur une base
+ * H2 embarquée de plusieurs centaines de milliers d'animaux (moitié chats, moitié poissons) : débit d'insertion
+ * et latence des requêtes polymorphes sur une grande table.
+ *
+ * Exemple : `java -jar benchmarks/target/benchmarks.jar InheritanceBenchmark -p animals=2000000`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InheritanceBenchmark {
+
+    /** Nombre d'animaux insérés par transaction, pour le chargement et le banc d'essai d'insertion. */
+    private static final int BATCH_SIZE = 500;
+
+    @Param({"TpPetstore", "TpPetstore-single-table"})
+    public String unit;
+
+    @Param({"200000"})
+    public int animals;
+
+    @Param({"1000"})
+    public int stores;
+
+    private EntityManagerFactory emf;
+    private final List<Long> storeIds = new ArrayList<>();
+    private long inserted;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emf = EmbeddedDatabase.create(unit);
+        List<PetStore> petStores = new ArrayList<>();
+        for (int i = 0; i < stores; i++) {
+            petStores.add(new PetStore("Magasin " + i, "Responsable " + i,
+                    new Adress(String.valueOf(i), "rue des bancs d'essai", "83000", "Toulon")));
+        }
+        new BulkImporter(emf).importAll(petStores);
+        petStores.forEach(store -> storeIds.add(store.getId()));
+        for (int i = 0; i < animals; i += BATCH_SIZE) {
+            insertBatch(Math.min(BATCH_SIZE, animals - i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        emf.close();
+    }
+
+    /** Insertion d'un lot d'animaux dans une transaction ; le temps mesuré est celui d'un animal. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insertAnimals() {
+        insertBatch(BATCH_SIZE);
+    }
+
+    /** Animaux (chats et poissons) d'un magasin. */
+    @Benchmark
+    public List<Animal> animalsOfStore() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("select a from Animal a where a.petStore.id = :id", Animal.class)
+                    .setParameter("id", randomStoreId())
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /** Page de 100 animaux, toutes espèces confondues, à une position aléatoire. */
+    @Benchmark
+    public List<Animal> polymorphicPage() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("select a from Animal a order by a.id", Animal.class)
+                    .setFirstResult(ThreadLocalRandom.current().nextInt(Math.max(1, animals - 100)))
+                    .setMaxResults(100)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /** Nombre de chats, toutes espèces étant dans la hiérarchie. */
+    @Benchmark
+    public long countCats() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("select count(a) from Animal a where type(a) = Cat", Long.class)
+                    .getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Insère des animaux dans une transaction, rattachés aux magasins par référence (aucune collection chargée).
+     */
+    private void insertBatch(int count) {
+        EntityManager em = emf.createEntityManager();
+        Session session = em.unwrap(Session.class);
+        session.setJdbcBatchSize(BATCH_SIZE);
+        session.setCacheMode(CacheMode.IGNORE);
+        try {
+            em.getTransaction().begin();
+            LocalDate birthDate = LocalDate.now();
+            for (int i = 0; i < count; i++, inserted++) {
+                PetStore store = em.getReference(PetStore.class, storeIds.get((int) (inserted % storeIds.size())));
+                em.persist(inserted % 2 == 0
+                        ? new Cat(birthDate, "white", store, "CHIP-" + inserted)
+                        : new Fish(birthDate, "blue", store, FishLivEnv.FRESH_WATER));
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    private long randomStoreId() {
+        return storeIds.get(ThreadLocalRandom.current().nextInt(storeIds.size()));
+    }
+}
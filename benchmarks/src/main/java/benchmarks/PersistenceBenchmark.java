@@ -0,0 +1,147 @@
+package benchmarks;
+
+import entitys.Adress;
+import entitys.Animal;
+import entitys.Cat;
+import entitys.Fish;
+import entitys.PetStore;
+import entitys.Product;
+import enumerations.FishLivEnv;
+import enumerations.ProdType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import services.BulkImporter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bancs d'essai des accès à la base : persistance d'agrégats `PetStore` (animaux, produits et adresse en cascade)
+ * et chargements polymorphes d'animaux, pour chaque stratégie d'héritage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    /** Nombre d'animaux préchargés pour les lectures polymorphes. */
+    private static final int PRELOADED_ANIMALS = 20_000;
+
+    @Param({"TpPetstore", "TpPetstore-single-table"})
+    public String unit;
+
+    @Param({"10"})
+    public int animalsPerStore;
+
+    @Param({"5"})
+    public int productsPerStore;
+
+    private EntityManagerFactory emf;
+    private List<Long> storeIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emf = EmbeddedDatabase.create(unit);
+        List<Object> stores = new ArrayList<>();
+        for (int i = 0; i < PRELOADED_ANIMALS / animalsPerStore; i++) {
+            stores.add(newStore(i));
+        }
+        new BulkImporter(emf).importAll(stores);
+        EntityManager em = emf.createEntityManager();
+        try {
+            storeIds = em.createQuery("select s.id from PetStore s", Long.class).getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        emf.close();
+    }
+
+    /**
+     * Persiste un magasin avec son adresse, ses animaux et ses produits, en cascade, dans une transaction.
+     */
+    @Benchmark
+    public PetStore persistAggregate() {
+        PetStore store = newStore(ThreadLocalRandom.current().nextInt());
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.persist(store);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+        return store;
+    }
+
+    /**
+     * Charge les animaux (chats et poissons) d'un magasin.
+     */
+    @Benchmark
+    public List<Animal> loadAnimalsOfStore() {
+        Long storeId = storeIds.get(ThreadLocalRandom.current().nextInt(storeIds.size()));
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("select a from Animal a where a.petStore.id = :id", Animal.class)
+                    .setParameter("id", storeId)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Charge une page de 100 animaux, toutes espèces confondues.
+     */
+    @Benchmark
+    public List<Animal> loadPolymorphicPage() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("select a from Animal a order by a.id", Animal.class)
+                    .setFirstResult(ThreadLocalRandom.current().nextInt(PRELOADED_ANIMALS - 100))
+                    .setMaxResults(100)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    private PetStore newStore(int index) {
+        PetStore store = new PetStore("Magasin " + index, "Responsable " + index,
+                new Adress(String.valueOf(index), "rue des bancs d'essai", "83000", "Toulon"));
+        LocalDate birthDate = LocalDate.now();
+        for (int i = 0; i < animalsPerStore; i++) {
+            if (i % 2 == 0) {
+                new Cat(birthDate, "white", store, "CHIP-" + index + "-" + i);
+            } else {
+                new Fish(birthDate, "blue", store, FishLivEnv.SEA_WATER);
+            }
+        }
+        for (int i = 0; i < productsPerStore; i++) {
+            store.addProducts(new Product(index + "-" + i, "Produit " + i, ProdType.values()[i % 3], 9.99 + i));
+        }
+        return store;
+    }
+}
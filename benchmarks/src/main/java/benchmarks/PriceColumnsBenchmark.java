@@ -0,0 +1,99 @@
+package benchmarks;
+
+import entitys.PetStore;
+import enumerations.ProdType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import services.PriceColumns;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bancs d'essai des parcours vectorisés de {@link PriceColumns} : filtre par fourchette de prix,
+ * statistiques d'un type de produit dans un magasin et centiles d'un magasin.
+ * Le catalogue est généré directement en SQL (H2) pour que la préparation reste rapide avec un million de produits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PriceColumnsBenchmark {
+
+    private static final int STORES = 10;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private EntityManagerFactory emf;
+    private PriceColumns columns;
+    private Long storeId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emf = EmbeddedDatabase.create("TpPetstore");
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        for (int i = 0; i < STORES; i++) {
+            PetStore store = new PetStore("Magasin " + i, "Responsable " + i, null);
+            em.persist(store);
+            storeId = store.getId();
+        }
+        em.createNativeQuery("insert into product (ID, CODE, LABEL, TYPE, PRICE) " +
+                        "select X, cast(X as varchar), 'Produit', mod(X, 3), mod(X * 7919, 100000) / 100.0 " +
+                        "from system_range(1, :size)")
+                .setParameter("size", size)
+                .executeUpdate();
+        // Chaque produit est vendu par un seul magasin
+        em.createNativeQuery("insert into petStore_product (ID_PETSTORE, ID_PRODUCT) " +
+                        "select s.ID, p.ID from petStore s join product p on mod(p.ID, " + STORES + ") = mod(s.ID, " + STORES + ")")
+                .executeUpdate();
+        em.getTransaction().commit();
+        em.close();
+        columns = PriceColumns.load(emf);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        emf.close();
+    }
+
+    @Benchmark
+    public long countInRange() {
+        return columns.countInRange(100, 250, null);
+    }
+
+    @Benchmark
+    public long[] findInRangeByType() {
+        return columns.findInRange(100, 110, ProdType.FOOD);
+    }
+
+    @Benchmark
+    public PriceColumns.PriceStats storeTypeStats() {
+        return columns.stats(ProdType.ACCESSORY, storeId);
+    }
+
+    @Benchmark
+    public double[] typePercentiles() {
+        return columns.percentiles(ProdType.CLEANING, null, 50, 90, 99);
+    }
+
+    @Benchmark
+    public double[] storePercentiles() {
+        return columns.percentiles(null, storeId, 50, 90, 99);
+    }
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import entitys.Adress;
+import entitys.Cat;
+import entitys.PetStore;
+import enumerations.FetchPlan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import projections.StoreAnimalCount;
+import services.InventoryReports;
+import services.ShardRouter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bancs d'essai du routage des magasins sur plusieurs bases H2 embarquées : lecture d'un magasin sur son shard,
+ * et rapport sur tous les magasins exécuté en parallèle sur chaque shard puis fusionné.
+ * Avec `-p shards=1`, toutes les données sont dans une seule base, pour comparaison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardingBenchmark {
+
+    @Param({"1", "4"})
+    public int shards;
+
+    @Param({"2000"})
+    public int stores;
+
+    @Param({"10"})
+    public int animalsPerStore;
+
+    private ShardRouter router;
+    private final List<Long> storeIds = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        router = EmbeddedDatabase.createShards("TpPetstore", shards);
+        for (int i = 0; i < stores; i++) {
+            String zipCode = String.format("%02d%03d", 1 + i % 95, i % 1000);
+            PetStore store = new PetStore("Magasin " + i, "Responsable " + i,
+                    new Adress(String.valueOf(i), "Rue " + i, zipCode, "Ville " + i));
+            for (int a = 0; a < animalsPerStore; a++) {
+                new Cat(LocalDate.now(), "Noir", store, "CHIP-" + i + "-" + a);
+            }
+            storeIds.add(router.save(store));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        router.close();
+    }
+
+    @Benchmark
+    public PetStore findPetStore() {
+        long id = storeIds.get(ThreadLocalRandom.current().nextInt(storeIds.size()));
+        return router.findPetStore(id, FetchPlan.SUMMARY).orElseThrow();
+    }
+
+    @Benchmark
+    public List<StoreAnimalCount> animalsPerStore() {
+        return router.fanOut(shard -> new InventoryReports(shard.emf()).animalsPerStore().stream()
+                .map(count -> new StoreAnimalCount(shard.globalId(count.petStoreId()), count.petStoreName(),
+                        count.animals(), count.cats(), count.fish()))
+                .toList());
+    }
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import enumerations.FetchPlan;
+import jakarta.persistence.EntityManagerFactory;
+import repositories.PetStoreRepository;
+import services.PersistenceBootstrap;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mesure du temps de démarrage : du lancement de la JVM à la première requête servie.
+ *
+ * Utilisation : `java -cp benchmarks/target/benchmarks.jar benchmarks.StartupProbe [unité] [URL JDBC] [--validate-mapping]`.
+ * Sans URL, la base de l'unité est utilisée ; avec une URL H2 (`jdbc:h2:mem:probe;DB_CLOSE_DELAY=-1;MODE=MariaDB`), la base
+ * est créée en mémoire : par génération du schéma pour les unités de développement, par les migrations pour
+ * "TpPetstore-production" (`DB_CLOSE_DELAY=-1` conserve la base migrée entre la connexion de Flyway et celles d'Hibernate).
+ * L'option `--validate-mapping` fait aussi vérifier par Hibernate que le mapping correspond au schéma migré
+ * ({@link PersistenceBootstrap#VALIDATE_MAPPING}).
+ *
+ * Ce programme sert aussi d'exécution d'entraînement pour créer une archive CDS (voir le README).
+ */
+public final class StartupProbe {
+
+    private StartupProbe() {
+    }
+
+    public static void main(String[] args) {
+        long mainNanos = System.nanoTime();
+        Instant mainStart = Instant.now();
+        String unit = args.length > 0 ? args[0] : "TpPetstore-production";
+        String url = args.length > 1 && args[1].startsWith("jdbc:") ? args[1] : null;
+        boolean validateMapping = args.length > 0 && "--validate-mapping".equals(args[args.length - 1]);
+
+        Map<String, Object> properties = new HashMap<>();
+        if (url != null) {
+            properties.put("jakarta.persistence.jdbc.url", url);
+        }
+        if (url != null && url.startsWith("jdbc:h2:")) {
+            properties.put("jakarta.persistence.jdbc.driver", "org.h2.Driver");
+            properties.put("jakarta.persistence.jdbc.user", "sa");
+            properties.put("jakarta.persistence.jdbc.password", "");
+            properties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+            properties.put("jakarta.persistence.database-product-name", "H2");
+            properties.put("jakarta.persistence.database-major-version", "2");
+            properties.put("jakarta.persistence.database-minor-version", "3");
+            if (unit.endsWith("-production")) {
+                properties.put(PersistenceBootstrap.MIGRATION_MODE, "migrate");  // Base vierge : schéma créé par les migrations
+            }
+        }
+        if (validateMapping) {
+            properties.put(PersistenceBootstrap.VALIDATE_MAPPING, "true");
+        }
+
+        EntityManagerFactory emf = PersistenceBootstrap.start(unit, properties);
+        long readyNanos = System.nanoTime();
+        int stores = new PetStoreRepository(emf).findPage(FetchPlan.SUMMARY, 0, 10).size();
+        long firstQueryNanos = System.nanoTime();
+
+        Instant jvmStart = ProcessHandle.current().info().startInstant().orElse(mainStart);
+        System.out.printf("%s : JVM -> main %d ms, démarrage de l'unité %d ms, première requête %d ms "
+                        + "(%d magasins), soit %d ms depuis le lancement de la JVM%n",
+                unit,
+                Duration.between(jvmStart, mainStart).toMillis(),
+                (readyNanos - mainNanos) / 1_000_000,
+                (firstQueryNanos - readyNanos) / 1_000_000,
+                stores,
+                Duration.between(jvmStart, mainStart).toMillis() + (firstQueryNanos - mainNanos) / 1_000_000);
+        emf.close();
+    }
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import entitys.Adress;
+import entitys.Cat;
+import entitys.PetStore;
+import entitys.Product;
+import enumerations.ProdType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bancs d'essai des méthodes `toString` des entités, sur un graphe relié
+ * (magasin, adresse, produit et chat se référencent mutuellement).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToStringBenchmark {
+
+    private Adress adress;
+    private PetStore petStore;
+    private Product product;
+    private Cat cat;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        adress = new Adress("3B", "Impasse des moutons", "83500", "La Seyne sur Mer");
+        petStore = new PetStore("Baba", "Dialo", adress);
+        adress.setPetStore(petStore);
+        product = new Product("1", "eco", ProdType.ACCESSORY, 29.99);
+        petStore.addProducts(product);
+        cat = new Cat(LocalDate.now(), "white", petStore, "Inconnu");
+    }
+
+    @Benchmark
+    public String adressToString() {
+        return adress.toString();
+    }
+
+    @Benchmark
+    public String petStoreToString() {
+        return petStore.toString();
+    }
+
+    @Benchmark
+    public String productToString() {
+        return product.toString();
+    }
+
+    @Benchmark
+    public String catToString() {
+        return cat.toString();
+    }
+}
@@ -1,21 +1,32 @@
 package entitys;
 
 import jakarta.persistence.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
 import java.io.Serializable;
+import java.time.Instant;
 
 /**
  * Classe représentant une adresse.
  * Cette classe est mappée à la table "adress" de la base de données.
  * Elle contient des informations telles que le numéro, la rue, le code postal et la ville.
  * Une adresse peut être associée à un magasin d'animaux via une relation de type One-to-One.
+ * Les adresses sont conservées dans le cache de second niveau avec les magasins.
  */
 @Entity
-@Table(name = "adress")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog.adress")
+@Table(name = "adress", indexes = {
+        @Index(name = "IDX_ADRESS_ZIP_CODE", columnList = "ZIP_CODE"),  // Recherche des magasins par code postal ou département
+        @Index(name = "IDX_ADRESS_CITY", columnList = "CITY")})
 public class Adress implements Serializable {
 
     /** Identifiant unique de l'adresse. C'est la clé primaire de la table. */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "adress_seq")
+    @SequenceGenerator(name = "adress_seq", sequenceName = "adress_seq", allocationSize = 50)
     @Column(name = "ID")
     private Long id;
 
@@ -35,8 +46,16 @@ public class Adress implements Serializable {
     @Column(name = "CITY")
     private String city;
 
-    /** Le magasin d'animaux associé à cette adresse (relation One-to-One). */
-    @OneToOne(mappedBy = "adress")
+    /** Date de la dernière écriture de la ligne, utilisée pour le rafraîchissement incrémental des instantanés du catalogue. */
+    @UpdateTimestamp
+    @Column(name = "UPDATED_AT")
+    private Instant updatedAt;
+
+    /**
+     * Le magasin d'animaux associé à cette adresse (relation One-to-One).
+     * Côté inverse de la relation : son chargement différé repose sur l'amélioration du bytecode (voir pom.xml).
+     */
+    @OneToOne(mappedBy = "adress", fetch = FetchType.LAZY)
     private PetStore petStore;
 
     /**
@@ -151,6 +170,15 @@ public class Adress implements Serializable {
         this.city = city;
     }
 
+    /**
+     * Récupère la date de la dernière écriture de l'adresse.
+     *
+     * @return La date de la dernière écriture, ou null si l'adresse n'a pas encore été enregistrée.
+     */
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
     /**
      * Récupère le magasin d'animaux associé à cette adresse.
      *
@@ -176,13 +204,16 @@ public class Adress implements Serializable {
      */
     @Override
     public String toString() {
-        final StringBuffer sb = new StringBuffer("Adress{");
+        final StringBuilder sb = new StringBuilder("Adress{");
         sb.append("id=").append(id);
         sb.append(", number='").append(number).append('\'');
         sb.append(", street='").append(street).append('\'');
         sb.append(", zipCode='").append(zipCode).append('\'');
         sb.append(", city='").append(city).append('\'');
-        sb.append(", petStore=").append(petStore);
+        // Côté inverse chargé à la demande : on n'affiche le magasin que s'il est déjà chargé
+        if (Hibernate.isPropertyInitialized(this, "petStore")) {
+            sb.append(", petStoreId=").append(petStore == null ? null : petStore.getId());
+        }
         sb.append('}');
         return sb.toString();
     }
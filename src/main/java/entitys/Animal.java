@@ -1,33 +1,56 @@
 package entitys;
 
+import enumerations.AnimalStatus;
 import jakarta.persistence.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.FetchProfile;
 
 import java.io.Serializable;
-import java.util.Date;
+import java.time.Instant;
+import java.time.LocalDate;
 
 /**
  * Classe représentant un animal. Cette classe est mappée à la table "animal" de la base de données.
  * Elle contient des informations de base sur un animal, telles que sa date de naissance, sa couleur et son magasin d'animaux associé.
  * Cette classe utilise la stratégie d'héritage "JOINED", ce qui permet d'avoir une hiérarchie d'objets avec une table par sous-classe.
+ * L'unité de persistance "TpPetstore-single-table" remplace cette stratégie par SINGLE_TABLE (voir `animal-single-table.xml`).
+ * Le magasin de l'animal est chargé à la demande ; le profil de chargement {@value #FULL_GRAPH_PROFILE}
+ * charge en une seule requête l'animal, son magasin et l'adresse du magasin.
+ * Les recherches par âge (voir `AnimalAgeQueries`) sont servies par les index sur la date de naissance.
+ * Un animal vendu ou cédé ({@link AnimalStatus}) est déplacé, après un délai, dans la table d'archive
+ * par `AnimalArchiver` (voir {@link ArchivedAnimal}).
  */
 @Entity
-@Table(name = "animal")
+@FetchProfile(name = Animal.FULL_GRAPH_PROFILE, fetchOverrides = {
+        @FetchProfile.FetchOverride(entity = Animal.class, association = "petStore", mode = FetchMode.JOIN, fetch = FetchType.EAGER),
+        @FetchProfile.FetchOverride(entity = PetStore.class, association = "adress", mode = FetchMode.JOIN, fetch = FetchType.EAGER)
+})
+@Table(name = "animal", indexes = {
+        @Index(name = "IDX_ANIMAL_STORE_BIRTH_DATE_STATUS", columnList = "ID_PET_STORE, BIRTH_DATE, STATUS"),  // Âges des animaux d'un magasin
+        @Index(name = "IDX_ANIMAL_BIRTH_DATE_STATUS", columnList = "BIRTH_DATE, STATUS"),  // Âges des animaux de tous les magasins
+        @Index(name = "IDX_ANIMAL_STATUS_CHANGED_AT", columnList = "STATUS_CHANGED_AT, STATUS")})  // Animaux à archiver
 @Inheritance(strategy = InheritanceType.JOINED)  // Utilisation de la stratégie JOINED pour l'héritage
 public class Animal implements Serializable {
 
+    /** Nom du profil de chargement de l'animal avec son magasin et l'adresse du magasin. */
+    public static final String FULL_GRAPH_PROFILE = "animal-full-graph";
+
     /**
      * Identifiant unique de l'animal. C'est la clé primaire de la table.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "animal_seq")
+    @SequenceGenerator(name = "animal_seq", sequenceName = "animal_seq", allocationSize = 50)
     @Column(name = "ID")
     private Long id;
 
     /**
-     * Date de naissance de l'animal.
+     * Date de naissance de l'animal (sans heure ni fuseau horaire).
      */
     @Column(name = "BIRTH_DATE")
-    private Date birthDate;
+    private LocalDate birthDate;
 
     /**
      * Couleur de l'animal.
@@ -35,10 +58,25 @@ public class Animal implements Serializable {
     @Column(name = "COLOR")
     private String color;
 
+    /**
+     * Statut de l'animal dans son cycle de vie. La valeur par défaut de la colonne (comme dans la migration V4)
+     * s'applique aux insertions SQL qui ne la renseignent pas.
+     */
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'AVAILABLE'")
+    @Column(name = "STATUS", length = 20, nullable = false)
+    private AnimalStatus status = AnimalStatus.AVAILABLE;
+
+    /**
+     * Date du dernier changement de statut, null tant que l'animal est disponible depuis son arrivée.
+     */
+    @Column(name = "STATUS_CHANGED_AT")
+    private Instant statusChangedAt;
+
     /**
      * Le magasin d'animaux auquel appartient cet animal.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "ID_PET_STORE")
     private PetStore petStore;
 
@@ -56,7 +94,7 @@ public class Animal implements Serializable {
      * @param birthDate La date de naissance de l'animal.
      * @param color     La couleur de l'animal.
      */
-    public Animal(PetStore petStore, Date birthDate, String color) {
+    public Animal(PetStore petStore, LocalDate birthDate, String color) {
         this.birthDate = birthDate;
         this.color = color;
         setPetStore(petStore);  // Utilisation du setter pour gérer la relation bidirectionnelle avec le magasin
@@ -85,7 +123,7 @@ public class Animal implements Serializable {
      *
      * @return La date de naissance de l'animal.
      */
-    public Date getbirthDate() {
+    public LocalDate getbirthDate() {
         return birthDate;
     }
 
@@ -94,7 +132,7 @@ public class Animal implements Serializable {
      *
      * @param birthDate La date de naissance de l'animal.
      */
-    public void setbirthDate(Date birthDate) {
+    public void setbirthDate(LocalDate birthDate) {
         this.birthDate = birthDate;
     }
 
@@ -116,6 +154,37 @@ public class Animal implements Serializable {
         this.color = color;
     }
 
+    /**
+     * Récupère le statut de l'animal.
+     *
+     * @return Le statut de l'animal.
+     */
+    public AnimalStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Change le statut de l'animal (par exemple à sa vente) et date ce changement.
+     * Un animal vendu ou cédé sera archivé par `AnimalArchiver` une fois le délai de conservation écoulé.
+     *
+     * @param status Le nouveau statut de l'animal.
+     */
+    public void setStatus(AnimalStatus status) {
+        if (this.status != status) {
+            this.status = status;
+            this.statusChangedAt = Instant.now();
+        }
+    }
+
+    /**
+     * Récupère la date du dernier changement de statut.
+     *
+     * @return La date du dernier changement de statut, ou null si le statut n'a jamais changé.
+     */
+    public Instant getStatusChangedAt() {
+        return statusChangedAt;
+    }
+
     /**
      * Récupère le magasin d'animaux auquel cet animal appartient.
      *
@@ -129,36 +198,39 @@ public class Animal implements Serializable {
      * Définit le magasin d'animaux auquel cet animal appartient.
      * Cette méthode assure la gestion bidirectionnelle de la relation entre l'animal et le magasin.
      * Si l'animal change de magasin, il est ajouté à la liste des animaux du nouveau magasin et retiré de celle de l'ancien magasin.
+     * Seules les collections déjà chargées sont mises à jour : changer de magasin ne charge ni les magasins
+     * (proxys) ni leurs listes d'animaux, quelle que soit leur taille.
      *
      * @param petStore Le magasin d'animaux auquel cet animal va être associé.
      */
     public void setPetStore(PetStore petStore) {
         // Si l'animal appartient déjà à un magasin, on l'enlève de la liste des animaux de ce magasin
-        if (this.petStore != null) {
-            this.petStore.getAnimals().remove(this);
+        if (this.petStore != null && Hibernate.isInitialized(this.petStore)) {
+            ((PetStore) Hibernate.unproxy(this.petStore)).detachAnimal(this);
         }
 
         // Mise à jour de l'animal avec le nouveau magasin
         this.petStore = petStore;
 
         // Si un magasin est défini, on ajoute l'animal à la liste des animaux du magasin
-        if (this.petStore != null) {
-            this.petStore.getAnimals().add(this);
+        if (this.petStore != null && Hibernate.isInitialized(this.petStore)) {
+            ((PetStore) Hibernate.unproxy(this.petStore)).attachAnimal(this);
         }
     }
 
     /**
      * Retourne une représentation sous forme de chaîne de caractères de l'animal.
      *
-     * @return Une chaîne représentant l'objet animal, incluant ses attributs et son magasin d'animaux.
+     * @return Une chaîne représentant l'objet animal, incluant ses attributs et l'identifiant de son magasin d'animaux.
      */
     @Override
     public String toString() {
-        final StringBuffer sb = new StringBuffer("Animal{");
+        final StringBuilder sb = new StringBuilder("Animal{");
         sb.append("id=").append(id);
         sb.append(", birthDate=").append(birthDate);
         sb.append(", color='").append(color).append('\'');
-        sb.append(", petStore=").append(petStore);
+        sb.append(", status=").append(status);
+        sb.append(", petStoreId=").append(petStore == null ? null : petStore.getId());  // Un proxy n'est pas chargé par getId
         sb.append('}');
         return sb.toString();
     }
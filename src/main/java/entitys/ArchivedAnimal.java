@@ -0,0 +1,134 @@
+package entitys;
+
+import enumerations.AnimalStatus;
+import enumerations.FishLivEnv;
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Classe représentant un animal archivé : un animal vendu ou cédé, retiré des tables `animal`, `CAT` et `FISH`
+ * par `AnimalArchiver`. Cette classe est mappée à la table "animal_archive", qui n'est jamais modifiée
+ * après l'archivage.
+ *
+ * Toutes les espèces sont dans la même table (colonne SPECIES), avec les attributs propres à chaque espèce :
+ * l'historique reste consultable sans alourdir les tables et les index des animaux en magasin.
+ * L'identifiant est celui de l'animal d'origine ; le magasin est référencé par son seul identifiant.
+ */
+@Entity
+@Immutable
+@Table(name = "animal_archive", indexes = {
+        @Index(name = "IDX_ANIMAL_ARCHIVE_STORE", columnList = "ID_PET_STORE, STATUS_CHANGED_AT")})
+public class ArchivedAnimal implements Serializable {
+
+    @Id
+    @Column(name = "ID")
+    private Long id;
+
+    /** Nom de l'entité d'origine ("Cat", "Fish" ou "Animal"). */
+    @Column(name = "SPECIES", length = 20, nullable = false)
+    private String species;
+
+    @Column(name = "BIRTH_DATE")
+    private LocalDate birthDate;
+
+    @Column(name = "COLOR")
+    private String color;
+
+    @Column(name = "ID_PET_STORE")
+    private Long petStoreId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "STATUS", length = 20, nullable = false)
+    private AnimalStatus status;
+
+    @Column(name = "STATUS_CHANGED_AT")
+    private Instant statusChangedAt;
+
+    @Column(name = "ARCHIVED_AT", nullable = false)
+    private Instant archivedAt;
+
+    /** Numéro de puce, pour un chat. */
+    @Column(name = "CHIPLD")
+    private String chipld;
+
+    /** Environnement de vie, pour un poisson. */
+    @Column(name = "FISH_LIV_ENV")
+    private FishLivEnv linvingEnv;
+
+    /**
+     * Constructeur par défaut nécessaire pour JPA.
+     * Les animaux archivés sont créés par requête (`insert ... select`), jamais instanciés par l'application.
+     */
+    protected ArchivedAnimal() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getSpecies() {
+        return species;
+    }
+
+    public LocalDate getBirthDate() {
+        return birthDate;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public Long getPetStoreId() {
+        return petStoreId;
+    }
+
+    public AnimalStatus getStatus() {
+        return status;
+    }
+
+    public Instant getStatusChangedAt() {
+        return statusChangedAt;
+    }
+
+    public Instant getArchivedAt() {
+        return archivedAt;
+    }
+
+    public String getChipld() {
+        return chipld;
+    }
+
+    public FishLivEnv getLinvingEnv() {
+        return linvingEnv;
+    }
+
+    /**
+     * Méthode `toString` qui retourne une chaîne représentant l'objet `ArchivedAnimal`.
+     *
+     * @return Une chaîne représentant l'objet `ArchivedAnimal`.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ArchivedAnimal{");
+        sb.append("id=").append(id);
+        sb.append(", species=").append(species);
+        sb.append(", birthDate=").append(birthDate);
+        sb.append(", color='").append(color).append('\'');
+        sb.append(", petStoreId=").append(petStoreId);
+        sb.append(", status=").append(status);
+        sb.append(", statusChangedAt=").append(statusChangedAt);
+        sb.append(", archivedAt=").append(archivedAt);
+        if (chipld != null) {
+            sb.append(", chipld='").append(chipld).append('\'');
+        }
+        if (linvingEnv != null) {
+            sb.append(", linvingEnv=").append(linvingEnv);
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -2,17 +2,16 @@ package entitys;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.Table;
 
-import java.util.Date;
+import java.time.LocalDate;
 
 /**
  * Classe représentant un chat, qui est une sous-classe d'animal.
  * Cette classe hérite des attributs de la classe `Animal` et ajoute une fonctionnalité spécifique au chat : le numéro de puce.
- * Les informations concernant le chat sont mappées à la table "CAT" de la base de données.
+ * Les informations concernant le chat sont mappées à la table "CAT" de la base de données (stratégie JOINED, voir `animal-joined.xml`),
+ * ou à la table "animal" en stratégie SINGLE_TABLE.
  */
 @Entity
-@Table(name = "CAT")  // La table associée à cette entité est "CAT"
 public class Cat extends Animal {
 
     /**
@@ -37,7 +36,7 @@ public class Cat extends Animal {
      * @param petStore  Le magasin d'animaux auquel ce chat appartient.
      * @param chipld    Le numéro de puce du chat.
      */
-    public Cat(Date birthDate, String color, PetStore petStore, String chipld) {
+    public Cat(LocalDate birthDate, String color, PetStore petStore, String chipld) {
         super(petStore, birthDate, color);  // Appel du constructeur de la classe parente Animal
         this.chipld = chipld;  // Initialisation du numéro de puce
     }
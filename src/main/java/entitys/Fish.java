@@ -3,16 +3,15 @@ package entitys;
 import enumerations.FishLivEnv;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.Table;
-import java.util.Date;
+import java.time.LocalDate;
 
 /**
  * Classe représentant un poisson, qui est une sous-classe d'`Animal`.
  * Cette classe hérite des attributs de la classe `Animal` et ajoute un environnement de vie spécifique pour le poisson.
- * Les informations concernant le poisson sont mappées à la table "FISH" dans la base de données.
+ * Les informations concernant le poisson sont mappées à la table "FISH" dans la base de données (stratégie JOINED, voir `animal-joined.xml`),
+ * ou à la table "animal" en stratégie SINGLE_TABLE.
  */
 @Entity
-@Table(name = "FISH")  // La table associée à cette entité est "FISH"
 public class Fish extends Animal {
 
     /** Environnement de vie du poisson (eau douce, eau salée, etc.) */
@@ -34,7 +33,7 @@ public class Fish extends Animal {
      * @param petStore Le magasin d'animaux auquel ce poisson appartient.
      * @param linvingEnv L'environnement de vie du poisson (eau douce, eau salée, etc.).
      */
-    public Fish(Date birthDate, String color, PetStore petStore, FishLivEnv linvingEnv) {
+    public Fish(LocalDate birthDate, String color, PetStore petStore, FishLivEnv linvingEnv) {
         super(petStore, birthDate, color);  // Appel du constructeur de la classe parente Animal
         this.linvingEnv = linvingEnv;  // Initialisation de l'environnement de vie du poisson
     }
@@ -0,0 +1,131 @@
+package entitys;
+
+import enumerations.InventoryEventType;
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Classe représentant un événement d'inventaire (vente, réassort, déplacement d'animal).
+ * Cette classe est mappée à la table "inventory_event", un journal en ajout seul : un événement n'est jamais modifié.
+ *
+ * Les magasins, produits et animaux concernés sont référencés par leur seul identifiant, sans association :
+ * l'écriture d'un événement ne charge ni ne verrouille aucune autre entité.
+ */
+@Entity
+@Immutable
+@Table(name = "inventory_event")
+public class InventoryEvent implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventory_event_seq")
+    @SequenceGenerator(name = "inventory_event_seq", sequenceName = "inventory_event_seq", allocationSize = 50)
+    @Column(name = "ID")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "EVENT_TYPE", length = 20, nullable = false)
+    private InventoryEventType type;
+
+    /** Date de l'événement, fixée par l'appelant (et non à l'écriture, qui est différée). */
+    @Column(name = "OCCURRED_AT", nullable = false)
+    private Instant occurredAt;
+
+    @Column(name = "ID_PET_STORE")
+    private Long petStoreId;
+
+    /** Magasin de destination d'un déplacement d'animal. */
+    @Column(name = "ID_TARGET_PET_STORE")
+    private Long targetPetStoreId;
+
+    @Column(name = "ID_PRODUCT")
+    private Long productId;
+
+    @Column(name = "ID_ANIMAL")
+    private Long animalId;
+
+    @Column(name = "QUANTITY", nullable = false)
+    private int quantity;
+
+    /**
+     * Constructeur par défaut nécessaire pour JPA.
+     */
+    public InventoryEvent() {
+    }
+
+    /**
+     * Constructeur d'un événement.
+     *
+     * @param type Le type d'événement.
+     * @param occurredAt La date de l'événement.
+     * @param petStoreId Le magasin concerné (magasin d'origine pour un déplacement).
+     * @param targetPetStoreId Le magasin de destination d'un déplacement, sinon null.
+     * @param productId Le produit vendu ou réassorti, sinon null.
+     * @param animalId L'animal déplacé, sinon null.
+     * @param quantity Le nombre d'unités vendues ou réassorties (1 pour un déplacement).
+     */
+    public InventoryEvent(InventoryEventType type, Instant occurredAt, Long petStoreId, Long targetPetStoreId,
+                          Long productId, Long animalId, int quantity) {
+        this.type = type;
+        this.occurredAt = occurredAt;
+        this.petStoreId = petStoreId;
+        this.targetPetStoreId = targetPetStoreId;
+        this.productId = productId;
+        this.animalId = animalId;
+        this.quantity = quantity;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public InventoryEventType getType() {
+        return type;
+    }
+
+    public Instant getOccurredAt() {
+        return occurredAt;
+    }
+
+    public Long getPetStoreId() {
+        return petStoreId;
+    }
+
+    public Long getTargetPetStoreId() {
+        return targetPetStoreId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Long getAnimalId() {
+        return animalId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Méthode `toString` qui retourne une chaîne représentant l'objet `InventoryEvent`.
+     *
+     * @return Une chaîne représentant l'objet `InventoryEvent`.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("InventoryEvent{");
+        sb.append("id=").append(id);
+        sb.append(", type=").append(type);
+        sb.append(", occurredAt=").append(occurredAt);
+        sb.append(", petStoreId=").append(petStoreId);
+        sb.append(", targetPetStoreId=").append(targetPetStoreId);
+        sb.append(", productId=").append(productId);
+        sb.append(", animalId=").append(animalId);
+        sb.append(", quantity=").append(quantity);
+        sb.append('}');
+        return sb.toString();
+    }
+}
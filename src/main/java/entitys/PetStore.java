@@ -1,44 +1,76 @@
 package entitys;
 
 import jakarta.persistence.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.jpa.HibernateHints;
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.HashSet;
-import java.util.Objects;
 import java.util.Set;
+import java.util.UUID;
 
 /**
  * Classe représentant un magasin d'animaux. Cette classe est mappée à la table "petStore" dans la base de données.
  * Elle contient des informations sur le magasin, les animaux qu'il possède, les produits qu'il vend et son adresse.
  * La classe gère aussi les relations avec les entités associées : `Animal`, `Product`, et `Adress`.
+ * Le magasin et ses produits sont conservés dans le cache de second niveau ; les animaux, qui changent souvent, n'y sont pas.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog.petStore")
+@NamedQuery(name = "PetStore.findAll", query = "select s from PetStore s order by s.id",
+        hints = {@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "catalog.queries")})
+@NamedEntityGraph(name = "PetStore.summary", attributeNodes = @NamedAttributeNode("adress"))
+@BatchSize(size = 50)
 @Table(name = "petStore")  // La table associée à cette entité est "petStore"
 public class PetStore implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "petStore_seq")
+    @SequenceGenerator(name = "petStore_seq", sequenceName = "petStore_seq", allocationSize = 50)
     @Column(name = "ID")
     private Long id;
 
+    /**
+     * Clé métier du magasin, attribuée à la création et jamais modifiée.
+     * Elle sert à `equals` et `hashCode` : l'identité du magasin ne dépend ni de l'identifiant
+     * (attribué seulement à la persistance) ni du contenu des collections.
+     */
+    @Column(name = "STORE_UUID", length = 36, nullable = false, unique = true, updatable = false)
+    private String uuid;
+
     @Column(name = "NAME")
     private String name;
 
     @Column(name = "MANAGER_NAME")
     private String managerName;
 
+    /** Date de la dernière écriture de la ligne, utilisée pour le rafraîchissement incrémental des instantanés du catalogue. */
+    @UpdateTimestamp
+    @Column(name = "UPDATED_AT")
+    private Instant updatedAt;
+
     // Relation OneToMany avec l'entité Animal, un magasin peut avoir plusieurs animaux.
     @OneToMany(mappedBy = "petStore", cascade = CascadeType.ALL)
+    @BatchSize(size = 50)
     private Set<Animal> animals;
 
     // Relation ManyToMany avec l'entité Product, un magasin peut vendre plusieurs produits et inversement.
     @ManyToMany(cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog.petStore.products")
+    @BatchSize(size = 50)
     @JoinTable(name = "petStore_product",
             joinColumns = @JoinColumn(name = "ID_PETSTORE", referencedColumnName = "ID"),
             inverseJoinColumns = @JoinColumn(name = "ID_PRODUCT", referencedColumnName = "ID"))
     private Set<Product> products;
 
     // Relation OneToOne avec l'entité Adress, chaque magasin a une adresse.
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "adress_id", referencedColumnName = "id")
     private Adress adress;
 
@@ -81,16 +113,47 @@ public class PetStore implements Serializable {
         animal.setPetStore(this);  // Mise à jour de l'association avec l'animal
     }
 
+    /**
+     * Ajoute un animal à la collection `animals`, appelée par `Animal.setPetStore`.
+     * La collection n'est modifiée que si elle est déjà chargée : c'est le côté inverse de la relation,
+     * la clé étrangère portée par l'animal suffit à la persistance, et une collection non chargée
+     * sera lue en base (donc à jour) lors de son premier accès.
+     *
+     * @param animal L'animal rattaché au magasin.
+     */
+    void attachAnimal(Animal animal) {
+        if (Hibernate.isInitialized(animals)) {
+            animals.add(animal);
+        }
+    }
+
+    /**
+     * Retire un animal de la collection `animals`, si elle est déjà chargée (voir `attachAnimal`).
+     *
+     * @param animal L'animal détaché du magasin.
+     */
+    void detachAnimal(Animal animal) {
+        if (Hibernate.isInitialized(animals)) {
+            animals.remove(animal);
+        }
+    }
+
     /**
      * Méthode pour ajouter un produit à la liste de produits du magasin.
-     * Elle met également à jour l'association bidirectionnelle dans la classe `Product`.
+     * Elle met également à jour l'association bidirectionnelle dans la classe `Product`,
+     * si la collection `petStores` du produit est déjà chargée ; sinon, son entrée dans le cache de second niveau
+     * est invalidée au commit (voir `services.CatalogCacheInvalidator`).
+     * La collection `products` est le côté propriétaire de la relation : si elle n'est pas chargée, elle le sera ;
+     * pour lier un produit sans charger la collection, utiliser `AssociationService.linkProduct`.
      *
      * @param product Le produit à ajouter au magasin.
      */
     public void addProducts(Product product) {
         if (product != null) {
             this.products.add(product);
-            product.getPetStores().add(this);  // Mise à jour de l'association avec le magasin dans Product
+            if (Hibernate.isInitialized(product.getPetStores())) {
+                product.getPetStores().add(this);  // Mise à jour de l'association avec le magasin dans Product
+            }
         }
     }
 
@@ -104,6 +167,26 @@ public class PetStore implements Serializable {
         this.id = id;
     }
 
+    /**
+     * Récupère la clé métier du magasin, en l'attribuant si nécessaire.
+     *
+     * @return La clé métier du magasin.
+     */
+    public String getUuid() {
+        if (uuid == null) {
+            uuid = UUID.randomUUID().toString();
+        }
+        return uuid;
+    }
+
+    /**
+     * Garantit qu'un magasin persisté a une clé métier, même si `getUuid` n'a jamais été appelé.
+     */
+    @PrePersist
+    void assignUuid() {
+        getUuid();
+    }
+
     public String getName() {
         return name;
     }
@@ -120,6 +203,10 @@ public class PetStore implements Serializable {
         this.managerName = managerName;
     }
 
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
     public Set<Animal> getAnimals() {
         return animals;
     }
@@ -136,28 +223,38 @@ public class PetStore implements Serializable {
         this.products = products;
     }
 
+    public Adress getAdress() {
+        return adress;
+    }
+
+    public void setAdress(Adress adress) {
+        this.adress = adress;
+    }
+
     /**
      * Méthode `toString` qui retourne une chaîne représentant l'objet `PetStore`.
-     * Elle inclut les informations sur le magasin, les animaux, les produits et l'adresse.
+     * Elle inclut les informations sur le magasin, le nombre d'animaux et de produits (si les collections sont chargées)
+     * et l'identifiant de l'adresse : les entités associées ne sont pas affichées, pour éviter les cycles.
      *
      * @return Une chaîne représentant l'objet `PetStore`.
      */
     @Override
     public String toString() {
-        final StringBuffer sb = new StringBuffer("PetStore{");
+        final StringBuilder sb = new StringBuilder("PetStore{");
         sb.append("id=").append(id);
         sb.append(", name='").append(name).append('\'');
         sb.append(", managerName='").append(managerName).append('\'');
-        sb.append(", animals=").append(animals);
-        sb.append(", products=").append(products);
-        sb.append(", adress=").append(adress);
+        sb.append(", animals=").append(Hibernate.isInitialized(animals) ? animals.size() : "?");
+        sb.append(", products=").append(Hibernate.isInitialized(products) ? products.size() : "?");
+        sb.append(", adressId=").append(adress == null ? null : adress.getId());
         sb.append('}');
         return sb.toString();
     }
 
     /**
      * Méthode `equals` qui vérifie l'égalité entre deux objets `PetStore`.
-     * Deux objets `PetStore` sont considérés égaux si leurs `id`, `name`, `managerName` et `animals` sont identiques.
+     * Deux objets `PetStore` sont considérés égaux s'ils ont la même clé métier (`uuid`).
+     * La comparaison passe par `getUuid()` pour fonctionner aussi avec les proxys Hibernate.
      *
      * @param o L'objet à comparer.
      * @return true si les deux objets sont égaux, false sinon.
@@ -165,22 +262,19 @@ public class PetStore implements Serializable {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        PetStore petStore = (PetStore) o;
-        return Objects.equals(id, petStore.id) &&
-                Objects.equals(name, petStore.name) &&
-                Objects.equals(managerName, petStore.managerName) &&
-                Objects.equals(animals, petStore.animals);
+        if (!(o instanceof PetStore petStore)) return false;
+        return getUuid().equals(petStore.getUuid());
     }
 
     /**
      * Méthode `hashCode` qui génère un code de hachage pour l'objet `PetStore`.
-     * Le code de hachage est basé sur les attributs `id`, `name`, `managerName` et `animals`.
+     * Le code de hachage est basé sur la clé métier : il est stable pendant toute la vie de l'objet
+     * et son calcul ne dépend pas de la taille des collections.
      *
      * @return Le code de hachage de l'objet.
      */
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, managerName, animals);
+        return getUuid().hashCode();
     }
 }
@@ -2,8 +2,14 @@ package entitys;
 
 import enumerations.ProdType;
 import jakarta.persistence.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.jpa.HibernateHints;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -11,13 +17,23 @@ import java.util.Set;
  * Classe représentant un produit vendu dans un magasin d'animaux.
  * Cette classe est mappée à la table "product" dans la base de données.
  * Elle contient des informations sur le produit, y compris son code, son label, son type, son prix et les magasins associés.
+ * Le catalogue change rarement : les produits sont conservés dans le cache de second niveau.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog.product")
+@NamedQuery(name = "Product.findAll", query = "select p from Product p order by p.id",
+        hints = {@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "catalog.queries")})
+@NamedQuery(name = "Product.findByCode", query = "select p from Product p where p.code = :code",
+        hints = {@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "catalog.queries")})
 @Table(name = "product")  // La table associée à cette entité est "product"
 public class Product implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     @Column(name = "ID")
     private long id;
 
@@ -33,8 +49,14 @@ public class Product implements Serializable {
     @Column(name = "PRICE")
     private double price;
 
+    /** Date de la dernière écriture de la ligne, utilisée pour le rafraîchissement incrémental des instantanés du catalogue. */
+    @UpdateTimestamp
+    @Column(name = "UPDATED_AT")
+    private Instant updatedAt;
+
     // Relation ManyToMany avec l'entité PetStore, un produit peut être vendu dans plusieurs magasins.
     @ManyToMany(mappedBy = "products")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog.product.petStores")
     private Set<PetStore> petStores;
 
     /**
@@ -121,6 +143,10 @@ public class Product implements Serializable {
         this.price = price;
     }
 
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
     public Set<PetStore> getPetStores() {
         return petStores;
     }
@@ -136,19 +162,19 @@ public class Product implements Serializable {
 
     /**
      * Méthode `toString` qui retourne une chaîne représentant l'objet `Product`.
-     * Elle inclut les informations sur le produit et les magasins associés.
+     * Elle inclut les informations sur le produit et le nombre de magasins associés (si la collection est chargée).
      *
      * @return Une chaîne représentant l'objet `Product`.
      */
     @Override
     public String toString() {
-        final StringBuffer sb = new StringBuffer("Product{");
+        final StringBuilder sb = new StringBuilder("Product{");
         sb.append("id=").append(id);
         sb.append(", code='").append(code).append('\'');
         sb.append(", label='").append(label).append('\'');
         sb.append(", prodType=").append(prodType);
         sb.append(", price=").append(price);
-        sb.append(", petStores=").append(petStores);
+        sb.append(", petStores=").append(Hibernate.isInitialized(petStores) ? petStores.size() : "?");
         sb.append('}');
         return sb.toString();
     }
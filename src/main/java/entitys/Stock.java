@@ -0,0 +1,114 @@
+package entitys;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+
+/**
+ * Classe représentant le stock d'un produit dans un magasin. Cette classe est mappée à la table "stock".
+ * La table `petStore_product` indique qu'un magasin vend un produit ; cette entité indique combien d'unités il lui reste.
+ *
+ * Le stock est modifié en concurrence (caisses, réassort) : il est protégé par un verrouillage optimiste
+ * (colonne `VERSION`), et la quantité ne peut jamais devenir négative. Il n'est pas mis en cache :
+ * il change trop souvent pour que le cache de second niveau soit utile.
+ */
+@Entity
+@Table(name = "stock", uniqueConstraints = @UniqueConstraint(name = "UK_STOCK_STORE_PRODUCT",
+        columnNames = {"ID_PET_STORE", "ID_PRODUCT"}))  // Un seul stock par magasin et par produit
+public class Stock implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_seq")
+    @SequenceGenerator(name = "stock_seq", sequenceName = "stock_seq", allocationSize = 50)
+    @Column(name = "ID")
+    private Long id;
+
+    /** Le magasin qui détient le stock. */
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "ID_PET_STORE", nullable = false, updatable = false)
+    private PetStore petStore;
+
+    /** Le produit en stock. */
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "ID_PRODUCT", nullable = false, updatable = false)
+    private Product product;
+
+    /** Le nombre d'unités disponibles, jamais négatif. */
+    @Column(name = "QUANTITY", nullable = false)
+    private int quantity;
+
+    /** Version de la ligne, incrémentée à chaque modification (verrouillage optimiste). */
+    @Version
+    @Column(name = "VERSION", nullable = false)
+    private long version;
+
+    /**
+     * Constructeur par défaut nécessaire pour JPA.
+     */
+    public Stock() {
+    }
+
+    /**
+     * Constructeur d'un stock.
+     *
+     * @param petStore Le magasin.
+     * @param product Le produit.
+     * @param quantity Le nombre d'unités disponibles.
+     */
+    public Stock(PetStore petStore, Product product, int quantity) {
+        this.petStore = petStore;
+        this.product = product;
+        setQuantity(quantity);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public PetStore getPetStore() {
+        return petStore;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Setter pour `quantity`.
+     *
+     * @param quantity Le nombre d'unités disponibles.
+     * @throws IllegalArgumentException si la quantité est négative.
+     */
+    public void setQuantity(int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Le stock ne peut pas être négatif : " + quantity);
+        }
+        this.quantity = quantity;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Méthode `toString` qui retourne une chaîne représentant l'objet `Stock`.
+     * Le magasin et le produit sont représentés par leur identifiant, sans les charger.
+     *
+     * @return Une chaîne représentant l'objet `Stock`.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("Stock{");
+        sb.append("id=").append(id);
+        sb.append(", petStoreId=").append(petStore == null ? null : petStore.getId());
+        sb.append(", productId=").append(product == null ? null : product.getId());
+        sb.append(", quantity=").append(quantity);
+        sb.append(", version=").append(version);
+        sb.append('}');
+        return sb.toString();
+    }
+}
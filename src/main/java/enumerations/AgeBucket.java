@@ -0,0 +1,22 @@
+package enumerations;
+
+import java.time.Period;
+
+public enum AgeBucket {
+    NEWBORN(Period.ZERO),          // Moins de 8 semaines
+    JUVENILE(Period.ofWeeks(8)),   // De 8 semaines à 1 an
+    ADULT(Period.ofYears(1));      // 1 an et plus
+
+    private final Period minimumAge;
+
+    AgeBucket(Period minimumAge) {
+        this.minimumAge = minimumAge;
+    }
+
+    /**
+     * @return L'âge à partir duquel un animal entre dans cette tranche.
+     */
+    public Period getMinimumAge() {
+        return minimumAge;
+    }
+}
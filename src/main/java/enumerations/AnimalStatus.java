@@ -0,0 +1,7 @@
+package enumerations;
+
+public enum AnimalStatus {
+    AVAILABLE,       // En magasin
+    SOLD,            // Vendu : archivable
+    TRANSFERRED_OUT  // Cédé hors du réseau de magasins : archivable
+}
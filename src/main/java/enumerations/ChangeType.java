@@ -0,0 +1,7 @@
+package enumerations;
+
+public enum ChangeType {
+    INSERT, // Entité créée
+    UPDATE, // Entité modifiée
+    DELETE  // Entité supprimée
+}
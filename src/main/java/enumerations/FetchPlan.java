@@ -0,0 +1,7 @@
+package enumerations;
+
+public enum FetchPlan {
+    SUMMARY,        // Magasin et adresse
+    WITH_INVENTORY, // Magasin, adresse et produits
+    FULL            // Magasin, adresse, produits et animaux
+}
@@ -0,0 +1,7 @@
+package enumerations;
+
+public enum InventoryEventType {
+    SALE,            // Vente de produits
+    RESTOCK,         // Réassort de produits
+    ANIMAL_TRANSFER  // Déplacement d'un animal vers un autre magasin
+}
@@ -0,0 +1,7 @@
+package enumerations;
+
+public enum MigrationMode {
+    NONE,     // Schéma non vérifié au démarrage
+    VALIDATE, // Démarrage refusé si le schéma n'est pas à la dernière version des migrations
+    MIGRATE   // Migrations en attente appliquées au démarrage
+}
@@ -0,0 +1,12 @@
+package projections;
+
+import enumerations.FishLivEnv;
+
+/**
+ * Nombre de poissons par environnement de vie.
+ *
+ * @param environment L'environnement de vie.
+ * @param fish Le nombre de poissons vivant dans cet environnement.
+ */
+public record FishEnvironmentCount(FishLivEnv environment, long fish) {
+}
@@ -0,0 +1,15 @@
+package projections;
+
+import enumerations.ProdType;
+
+/**
+ * Produit du catalogue, tel qu'il est lu dans un instantané du catalogue.
+ *
+ * @param id L'identifiant du produit.
+ * @param code Le code du produit.
+ * @param label Le label du produit.
+ * @param type Le type du produit.
+ * @param price Le prix du produit.
+ */
+public record ProductEntry(long id, String code, String label, ProdType type, double price) {
+}
@@ -0,0 +1,15 @@
+package projections;
+
+import enumerations.ProdType;
+
+/**
+ * Produit trouvé par l'index de recherche.
+ * Le prix n'en fait pas partie : il est modifié par des mises à jour en masse que l'index ne voit pas.
+ *
+ * @param id L'identifiant du produit.
+ * @param code Le code du produit.
+ * @param label Le label du produit.
+ * @param type Le type du produit.
+ */
+public record ProductHit(long id, String code, String label, ProdType type) {
+}
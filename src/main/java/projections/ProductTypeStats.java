@@ -0,0 +1,15 @@
+package projections;
+
+import enumerations.ProdType;
+
+/**
+ * Statistiques de prix des produits d'un type.
+ *
+ * @param type Le type de produit.
+ * @param products Le nombre de produits de ce type.
+ * @param averagePrice Le prix moyen.
+ * @param minPrice Le prix le plus bas.
+ * @param maxPrice Le prix le plus élevé.
+ */
+public record ProductTypeStats(ProdType type, long products, Double averagePrice, Double minPrice, Double maxPrice) {
+}
@@ -0,0 +1,27 @@
+package projections;
+
+import enumerations.AgeBucket;
+
+/**
+ * Nombre d'animaux d'un magasin par tranche d'âge.
+ *
+ * @param petStoreId L'identifiant du magasin.
+ * @param newborn Le nombre d'animaux de la tranche {@link AgeBucket#NEWBORN}.
+ * @param juvenile Le nombre d'animaux de la tranche {@link AgeBucket#JUVENILE}.
+ * @param adult Le nombre d'animaux de la tranche {@link AgeBucket#ADULT}.
+ * @param unknownAge Le nombre d'animaux sans date de naissance.
+ */
+public record StoreAgeCount(Long petStoreId, long newborn, long juvenile, long adult, long unknownAge) {
+
+    /**
+     * @param bucket La tranche d'âge.
+     * @return Le nombre d'animaux de la tranche.
+     */
+    public long count(AgeBucket bucket) {
+        return switch (bucket) {
+            case NEWBORN -> newborn;
+            case JUVENILE -> juvenile;
+            case ADULT -> adult;
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package projections;
+
+/**
+ * Nombre d'animaux d'un magasin, au total et par espèce.
+ *
+ * @param petStoreId L'identifiant du magasin.
+ * @param petStoreName Le nom du magasin.
+ * @param animals Le nombre total d'animaux.
+ * @param cats Le nombre de chats.
+ * @param fish Le nombre de poissons.
+ */
+public record StoreAnimalCount(Long petStoreId, String petStoreName, long animals, long cats, long fish) {
+}
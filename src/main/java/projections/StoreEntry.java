@@ -0,0 +1,17 @@
+package projections;
+
+/**
+ * Magasin et son adresse, tels qu'ils sont lus dans un instantané du catalogue.
+ *
+ * @param id L'identifiant du magasin.
+ * @param name Le nom du magasin.
+ * @param managerName Le nom du gérant.
+ * @param adressId L'identifiant de l'adresse (null si le magasin n'a pas d'adresse).
+ * @param number Le numéro de l'adresse.
+ * @param street La rue de l'adresse.
+ * @param zipCode Le code postal de l'adresse.
+ * @param city La ville de l'adresse.
+ */
+public record StoreEntry(long id, String name, String managerName, Long adressId,
+                         String number, String street, String zipCode, String city) {
+}
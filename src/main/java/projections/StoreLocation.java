@@ -0,0 +1,12 @@
+package projections;
+
+/**
+ * Localisation d'un magasin, telle que lue dans son adresse.
+ *
+ * @param petStoreId L'identifiant du magasin.
+ * @param adressId L'identifiant de l'adresse, null si le magasin n'en a pas.
+ * @param zipCode Le code postal.
+ * @param city La ville.
+ */
+public record StoreLocation(Long petStoreId, Long adressId, String zipCode, String city) {
+}
@@ -0,0 +1,13 @@
+package projections;
+
+/**
+ * Statistiques de prix du catalogue d'un magasin.
+ *
+ * @param petStoreId L'identifiant du magasin.
+ * @param petStoreName Le nom du magasin.
+ * @param products Le nombre de produits au catalogue du magasin.
+ * @param averagePrice Le prix moyen (null si le magasin n'a aucun produit).
+ * @param totalPrice La somme des prix (null si le magasin n'a aucun produit).
+ */
+public record StorePriceStats(Long petStoreId, String petStoreName, long products, Double averagePrice, Double totalPrice) {
+}
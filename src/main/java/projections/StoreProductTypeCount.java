@@ -0,0 +1,13 @@
+package projections;
+
+import enumerations.ProdType;
+
+/**
+ * Nombre de produits d'un type vendus par un magasin.
+ *
+ * @param petStoreId L'identifiant du magasin.
+ * @param type Le type de produit.
+ * @param products Le nombre de produits de ce type au catalogue du magasin.
+ */
+public record StoreProductTypeCount(Long petStoreId, ProdType type, long products) {
+}
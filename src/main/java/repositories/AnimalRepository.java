@@ -0,0 +1,84 @@
+package repositories;
+
+import entitys.Animal;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import services.PersistenceMetrics;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Dépôt d'accès aux animaux.
+ * Par défaut, le magasin d'un animal n'est pas chargé ; les méthodes qui acceptent `withStore`
+ * activent le profil {@link Animal#FULL_GRAPH_PROFILE} pour charger aussi le magasin et son adresse,
+ * dans la même requête.
+ */
+public class AnimalRepository {
+
+    private static final PersistenceMetrics.Operation FIND_BY_ID = PersistenceMetrics.operation("Animal", "findById");
+    private static final PersistenceMetrics.Operation FIND_PAGE = PersistenceMetrics.operation("Animal", "findPage");
+
+    private final EntityManagerFactory emf;
+
+    /**
+     * Constructeur du dépôt.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     */
+    public AnimalRepository(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    /**
+     * Recherche un animal par son identifiant.
+     *
+     * @param id L'identifiant de l'animal.
+     * @param withStore true pour charger aussi le magasin et son adresse.
+     * @return L'animal s'il existe.
+     */
+    public Optional<Animal> findById(Long id, boolean withStore) {
+        return FIND_BY_ID.measure(() -> {
+            EntityManager em = open(withStore);
+            try {
+                return Optional.ofNullable(em.find(Animal.class, id));
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Récupère une page d'animaux, triés par identifiant.
+     *
+     * @param first L'index du premier animal de la page.
+     * @param size Le nombre maximal d'animaux de la page.
+     * @param withStore true pour charger aussi le magasin et son adresse.
+     * @return La page d'animaux.
+     */
+    public List<Animal> findPage(int first, int size, boolean withStore) {
+        return FIND_PAGE.measure(() -> {
+            EntityManager em = open(withStore);
+            try {
+                return em.createQuery("select a from Animal a order by a.id", Animal.class)
+                        .setFirstResult(first)
+                        .setMaxResults(size)
+                        .getResultList();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Ouvre un EntityManager, avec le profil de chargement complet si demandé.
+     */
+    private EntityManager open(boolean withStore) {
+        EntityManager em = emf.createEntityManager();
+        if (withStore) {
+            em.unwrap(Session.class).enableFetchProfile(Animal.FULL_GRAPH_PROFILE);
+        }
+        return em;
+    }
+}
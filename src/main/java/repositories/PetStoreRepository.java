@@ -0,0 +1,209 @@
+package repositories;
+
+import entitys.PetStore;
+import enumerations.FetchPlan;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.SpecHints;
+import services.PersistenceMetrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Dépôt d'accès aux magasins d'animaux, avec un plan de chargement choisi par l'appelant.
+ *
+ * Chaque plan charge l'agrégat en un nombre fixe de requêtes, quel que soit le nombre de magasins :
+ * <ul>
+ *     <li>{@link FetchPlan#SUMMARY} : 1 requête (magasins et adresses, via le graphe "PetStore.summary") ;</li>
+ *     <li>{@link FetchPlan#WITH_INVENTORY} : 2 requêtes (+ produits) ;</li>
+ *     <li>{@link FetchPlan#FULL} : 3 requêtes (+ animaux).</li>
+ * </ul>
+ * Les collections sont chargées par des requêtes séparées plutôt que par une seule jointure,
+ * pour éviter le produit cartésien animaux × produits.
+ * Les magasins retournés sont détachés : seules les associations du plan demandé sont accessibles.
+ */
+public class PetStoreRepository {
+
+    private static final PersistenceMetrics.Operation FIND_BY_ID = PersistenceMetrics.operation("PetStore", "findById");
+    private static final PersistenceMetrics.Operation FIND_ALL = PersistenceMetrics.operation("PetStore", "findAll");
+    private static final PersistenceMetrics.Operation FIND_PAGE = PersistenceMetrics.operation("PetStore", "findPage");
+    private static final PersistenceMetrics.Operation FIND_BY_IDS = PersistenceMetrics.operation("PetStore", "findByIds");
+    private static final PersistenceMetrics.Operation FIND_BY_ZIP_CODE_PREFIX =
+            PersistenceMetrics.operation("PetStore", "findByZipCodePrefix");
+
+    private final EntityManagerFactory emf;
+
+    /**
+     * Constructeur du dépôt.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     */
+    public PetStoreRepository(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    /**
+     * Recherche un magasin par son identifiant.
+     *
+     * @param id L'identifiant du magasin.
+     * @param plan Le plan de chargement des associations.
+     * @return Le magasin s'il existe.
+     */
+    public Optional<PetStore> findById(Long id, FetchPlan plan) {
+        return FIND_BY_ID.measure(() -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                List<PetStore> stores = summaryQuery(em, "select s from PetStore s where s.id = :id")
+                        .setParameter("id", id)
+                        .getResultList();
+                loadCollections(em, stores, plan, true);
+                return stores.stream().findFirst();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Récupère tous les magasins, triés par identifiant.
+     *
+     * @param plan Le plan de chargement des associations.
+     * @return La liste des magasins.
+     */
+    public List<PetStore> findAll(FetchPlan plan) {
+        return FIND_ALL.measure(() -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                List<PetStore> stores = summaryQuery(em, "select s from PetStore s order by s.id").getResultList();
+                loadCollections(em, stores, plan, false);
+                return stores;
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Récupère une page de magasins, triés par identifiant.
+     *
+     * @param plan Le plan de chargement des associations.
+     * @param first L'index du premier magasin de la page.
+     * @param size Le nombre maximal de magasins de la page.
+     * @return La page de magasins.
+     */
+    public List<PetStore> findPage(FetchPlan plan, int first, int size) {
+        return FIND_PAGE.measure(() -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                List<PetStore> stores = summaryQuery(em, "select s from PetStore s order by s.id")
+                        .setFirstResult(first)
+                        .setMaxResults(size)
+                        .getResultList();
+                loadCollections(em, stores, plan, true);
+                return stores;
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Récupère des magasins par leurs identifiants, par exemple ceux trouvés par {@link services.LocationIndex}.
+     *
+     * @param ids Les identifiants des magasins.
+     * @param plan Le plan de chargement des associations.
+     * @return Les magasins trouvés, dans l'ordre des identifiants demandés.
+     */
+    public List<PetStore> findByIds(List<Long> ids, FetchPlan plan) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return FIND_BY_IDS.measure(() -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                List<PetStore> stores = summaryQuery(em, "select s from PetStore s where s.id in :ids")
+                        .setParameter("ids", ids)
+                        .getResultList();
+                loadCollections(em, stores, plan, true);
+                Map<Long, PetStore> byId = stores.stream().collect(Collectors.toMap(PetStore::getId, s -> s));
+                return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Recherche en base les magasins dont le code postal commence par un préfixe (un département, par exemple "83").
+     * La requête utilise l'index IDX_ADRESS_ZIP_CODE ; pour des recherches répétées, préférer
+     * {@link services.LocationIndex}, qui répond sans requête.
+     *
+     * @param prefix Le début du code postal.
+     * @param plan Le plan de chargement des associations.
+     * @return Les magasins, triés par code postal puis par identifiant.
+     */
+    public List<PetStore> findByZipCodePrefix(String prefix, FetchPlan plan) {
+        return FIND_BY_ZIP_CODE_PREFIX.measure(() -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                List<PetStore> stores = summaryQuery(em, "select s from PetStore s join s.adress a "
+                        + "where a.zipCode like :prefix escape '!' order by a.zipCode, s.id")
+                        .setParameter("prefix", escapeLike(prefix.strip()) + "%")
+                        .getResultList();
+                loadCollections(em, stores, plan, true);
+                return stores;
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Prépare la requête racine, qui charge les magasins et leur adresse en une seule requête.
+     */
+    private static TypedQuery<PetStore> summaryQuery(EntityManager em, String jpql) {
+        return em.createQuery(jpql, PetStore.class)
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, em.getEntityGraph("PetStore.summary"));
+    }
+
+    /**
+     * Initialise les collections demandées par le plan, une requête par collection.
+     * Les magasins étant déjà dans le contexte de persistance, Hibernate complète leurs collections
+     * au lieu de créer de nouvelles instances.
+     *
+     * @param restrict true pour limiter la requête aux magasins chargés, false s'ils ont tous été chargés.
+     */
+    private static void loadCollections(EntityManager em, List<PetStore> stores, FetchPlan plan, boolean restrict) {
+        if (stores.isEmpty() || plan == FetchPlan.SUMMARY) {
+            return;
+        }
+        List<Long> ids = restrict ? stores.stream().map(PetStore::getId).toList() : null;
+        fetchCollection(em, "products", ids);
+        if (plan == FetchPlan.FULL) {
+            fetchCollection(em, "animals", ids);
+        }
+    }
+
+    /**
+     * Protège les caractères spéciaux de LIKE, pour qu'un préfixe soit comparé littéralement.
+     */
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    private static void fetchCollection(EntityManager em, String collection, List<Long> ids) {
+        String jpql = "select distinct s from PetStore s left join fetch s." + collection;
+        if (ids == null) {
+            em.createQuery(jpql, PetStore.class).getResultList();
+        } else {
+            em.createQuery(jpql + " where s.id in :ids", PetStore.class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+        }
+    }
+}
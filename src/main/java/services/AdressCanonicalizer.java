@@ -0,0 +1,195 @@
+package services;
+
+import entitys.Adress;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Mise en forme canonique des adresses, pour les imports en masse et les annuaires d'adresses conservés en mémoire.
+ *
+ * Les adresses importées répètent quelques milliers de villes, codes postaux et rues : sans traitement, chaque
+ * occurrence est une chaîne distincte en mémoire. Chaque champ est ici :
+ * <ul>
+ *     <li>normalisé : espaces en tête et en fin supprimés, espaces multiples réduits à un seul, numéro, rue et ville
+ *     en majuscules (comme le recommande la norme postale AFNOR NF Z10-011), code postal sans espaces ;</li>
+ *     <li>internalisé : toutes les occurrences d'une même valeur partagent la même instance de {@link String},
+ *     prise dans un dictionnaire concurrent borné.</li>
+ * </ul>
+ * Les adresses identiques (après normalisation) sont repérées, pour que l'appelant puisse les dédoublonner.
+ *
+ * Le dictionnaire ne dépasse pas la capacité donnée : une fois plein, les nouvelles valeurs sont normalisées mais
+ * pas internalisées. Les valeurs fréquentes apparaissant tôt dans un import, elles y sont déjà.
+ * Contrairement à {@link String#intern()}, le dictionnaire est libéré avec l'instance.
+ */
+public class AdressCanonicalizer {
+
+    /** Capacité utilisée par défaut : de quoi couvrir les villes, codes postaux et rues d'un pays. */
+    public static final int DEFAULT_CAPACITY = 200_000;
+
+    private static final Pattern SPACES = Pattern.compile("[\\s\\u00A0]+");
+
+    private final int capacity;
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+    private final Map<AdressKey, Boolean> adresses = new ConcurrentHashMap<>();
+    private final AtomicInteger stringCount = new AtomicInteger();
+    private final AtomicInteger adressCount = new AtomicInteger();
+    private final LongAdder canonicalized = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    /**
+     * Constructeur utilisant la capacité par défaut.
+     */
+    public AdressCanonicalizer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructeur avec une capacité spécifique.
+     *
+     * @param capacity Le nombre maximal de chaînes (et d'adresses) distinctes conservées dans le dictionnaire.
+     */
+    public AdressCanonicalizer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity doit être strictement positif : " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Met une adresse sous forme canonique, en remplaçant ses champs par leurs valeurs normalisées et internalisées.
+     *
+     * @param adress L'adresse à modifier.
+     * @return true si une adresse identique a déjà été vue par ce dictionnaire.
+     */
+    public boolean canonicalize(Adress adress) {
+        adress.setNumber(intern(upperCase(adress.getNumber())));
+        adress.setStreet(intern(upperCase(adress.getStreet())));
+        adress.setZipCode(intern(zipCode(adress.getZipCode())));
+        adress.setCity(intern(upperCase(adress.getCity())));
+        canonicalized.increment();
+
+        AdressKey key = new AdressKey(adress.getNumber(), adress.getStreet(), adress.getZipCode(), adress.getCity());
+        if (adresses.containsKey(key)) {
+            duplicates.increment();
+            return true;
+        }
+        if (adressCount.get() < capacity && adresses.putIfAbsent(key, Boolean.TRUE) == null) {
+            adressCount.incrementAndGet();
+        }
+        return false;
+    }
+
+    /**
+     * Retourne l'instance partagée d'une chaîne, sans la normaliser.
+     * Sert aux valeurs déjà canoniques lues en base, par exemple celles d'un annuaire d'adresses en mémoire.
+     *
+     * @param value La chaîne (éventuellement null).
+     * @return L'instance du dictionnaire égale à la chaîne, ou la chaîne elle-même si le dictionnaire est plein.
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = strings.get(value);
+        if (existing == null) {
+            if (stringCount.get() >= capacity) {
+                return value;
+            }
+            existing = strings.putIfAbsent(value, value);
+            if (existing == null) {
+                stringCount.incrementAndGet();
+                return value;
+            }
+        }
+        if (existing != value) {
+            shared.increment();
+            bytesSaved.add(retainedSize(value));  // Le doublon n'est plus référencé
+        }
+        return existing;
+    }
+
+    /**
+     * @return Le bilan cumulé depuis la création du dictionnaire.
+     */
+    public Report report() {
+        return new Report(canonicalized.sum(), duplicates.sum(), stringCount.get(), shared.sum(), bytesSaved.sum());
+    }
+
+    /**
+     * Met une valeur en majuscules, sans espaces superflus ; une valeur vide devient null.
+     */
+    static String upperCase(String value) {
+        String spaced = collapseSpaces(value);
+        return spaced == null ? null : spaced.toUpperCase(Locale.FRANCE);
+    }
+
+    /**
+     * Supprime tous les espaces d'un code postal ("83 500" devient "83500") ; une valeur vide devient null.
+     */
+    static String zipCode(String value) {
+        String spaced = collapseSpaces(value);
+        return spaced == null ? null : spaced.replace(" ", "");
+    }
+
+    private static String collapseSpaces(String value) {
+        if (value == null) {
+            return null;
+        }
+        String spaced = SPACES.matcher(value).replaceAll(" ").strip();
+        return spaced.isEmpty() ? null : spaced;
+    }
+
+    /**
+     * Estime la mémoire occupée par une chaîne et son tableau d'octets (JVM 64 bits, références compressées,
+     * chaînes compactes) : en-tête de String (24 octets) plus tableau (16 octets d'en-tête et le contenu),
+     * arrondi à 8 octets.
+     */
+    static long retainedSize(String value) {
+        boolean latin1 = value.chars().allMatch(c -> c < 256);
+        long content = (long) value.length() * (latin1 ? 1 : 2);
+        return 24 + ((16 + content + 7) & ~7L);
+    }
+
+    /**
+     * Adresse normalisée, clé de dédoublonnage.
+     */
+    private record AdressKey(String number, String street, String zipCode, String city) {
+    }
+
+    /**
+     * Bilan de la mise en forme canonique.
+     *
+     * @param adresses Le nombre d'adresses mises en forme.
+     * @param duplicates Le nombre d'adresses identiques à une adresse déjà vue.
+     * @param distinctStrings Le nombre de chaînes distinctes dans le dictionnaire.
+     * @param sharedStrings Le nombre d'occurrences remplacées par une instance du dictionnaire.
+     * @param bytesSaved La mémoire estimée des doublons ainsi libérés, en octets.
+     */
+    public record Report(long adresses, long duplicates, int distinctStrings, long sharedStrings, long bytesSaved) {
+
+        /**
+         * Calcule le bilan d'une période, par exemple d'un import.
+         *
+         * @param before Le bilan au début de la période.
+         * @return Les compteurs de la période ; le nombre de chaînes distinctes est celui de la fin de la période.
+         */
+        public Report since(Report before) {
+            return new Report(adresses - before.adresses, duplicates - before.duplicates, distinctStrings,
+                    sharedStrings - before.sharedStrings, bytesSaved - before.bytesSaved);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d adresses (%d en double), %d chaînes distinctes, %d occurrences partagées, "
+                    + "%.1f Mo économisés", adresses, duplicates, distinctStrings, sharedStrings,
+                    bytesSaved / (1024d * 1024d));
+        }
+    }
+}
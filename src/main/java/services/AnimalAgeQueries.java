@@ -0,0 +1,204 @@
+package services;
+
+import entitys.Animal;
+import enumerations.AgeBucket;
+import enumerations.AnimalStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
+import projections.StoreAgeCount;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Recherches des animaux par âge : animaux nés depuis moins de 8 semaines dans un magasin, animaux de plus d'un an,
+ * nombre d'animaux par tranche d'âge ({@link AgeBucket}). Seuls les animaux en magasin ({@link AnimalStatus#AVAILABLE})
+ * sont recherchés : les animaux vendus ou cédés, en attente d'archivage, sont exclus.
+ *
+ * Un âge est converti en borne de date de naissance par rapport à la date du jour (horloge fournie) :
+ * « moins de 8 semaines » devient `BIRTH_DATE > aujourd'hui - 8 semaines`. Chaque recherche est donc un intervalle
+ * sur la date de naissance, servi par un index :
+ * <ul>
+ *     <li>IDX_ANIMAL_STORE_BIRTH_DATE_STATUS (magasin, date de naissance, statut) pour les recherches dans un magasin
+ *     et les comptages par magasin, qui sont lus dans l'index seul ;</li>
+ *     <li>IDX_ANIMAL_BIRTH_DATE_STATUS (date de naissance, statut) pour les recherches sur tous les magasins,
+ *     lues dans l'ordre de l'index.</li>
+ * </ul>
+ * Les animaux sans date de naissance ne sont dans aucune tranche.
+ */
+public class AnimalAgeQueries {
+
+    private static final PersistenceMetrics.Operation FIND_BORN_BETWEEN =
+            PersistenceMetrics.operation("Animal", "findBornBetween");
+    private static final PersistenceMetrics.Operation FIND_OLDER_THAN =
+            PersistenceMetrics.operation("Animal", "findOlderThan");
+    private static final PersistenceMetrics.Operation COUNT_BY_AGE =
+            PersistenceMetrics.operation("Animal", "countByAge");
+
+    private final EntityManagerFactory emf;
+    private final Clock clock;
+
+    /**
+     * Constructeur utilisant l'horloge du système.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     */
+    public AnimalAgeQueries(EntityManagerFactory emf) {
+        this(emf, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructeur avec une horloge spécifique, qui fixe la date du jour.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @param clock L'horloge utilisée pour calculer les âges.
+     */
+    public AnimalAgeQueries(EntityManagerFactory emf, Clock clock) {
+        this.emf = emf;
+        this.clock = clock;
+    }
+
+    /**
+     * Recherche les animaux d'un magasin plus jeunes qu'un âge donné (par exemple nés depuis moins de 8 semaines).
+     *
+     * @param petStoreId L'identifiant du magasin.
+     * @param age L'âge maximal, exclu.
+     * @return Les animaux, du plus jeune au plus âgé.
+     */
+    public List<Animal> findYoungerThan(long petStoreId, Period age) {
+        return findBornBetween(petStoreId, bornBefore(age).plusDays(1), null);
+    }
+
+    /**
+     * Recherche les animaux d'un magasin dans une tranche d'âge.
+     *
+     * @param petStoreId L'identifiant du magasin.
+     * @param bucket La tranche d'âge.
+     * @return Les animaux, du plus jeune au plus âgé.
+     */
+    public List<Animal> findInBucket(long petStoreId, AgeBucket bucket) {
+        LocalDate to = bornBefore(bucket.getMinimumAge());
+        LocalDate from = next(bucket).map(older -> bornBefore(older.getMinimumAge()).plusDays(1)).orElse(null);
+        return findBornBetween(petStoreId, from, to);
+    }
+
+    /**
+     * Recherche les animaux d'un magasin nés dans un intervalle de dates.
+     *
+     * @param petStoreId L'identifiant du magasin.
+     * @param from La première date de naissance, incluse (null : pas de borne).
+     * @param to La dernière date de naissance, incluse (null : pas de borne).
+     * @return Les animaux, du plus jeune au plus âgé.
+     */
+    public List<Animal> findBornBetween(long petStoreId, LocalDate from, LocalDate to) {
+        return FIND_BORN_BETWEEN.measure(() -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                TypedQuery<Animal> query = em.createQuery("select a from Animal a "
+                                + "where a.petStore.id = :store and a.status = :available"
+                                + (from == null ? "" : " and a.birthDate >= :from")
+                                + (to == null ? "" : " and a.birthDate <= :to")
+                                + " order by a.birthDate desc, a.id", Animal.class)
+                        .setParameter("store", petStoreId)
+                        .setParameter("available", AnimalStatus.AVAILABLE);
+                if (from != null) {
+                    query.setParameter("from", from);
+                }
+                if (to != null) {
+                    query.setParameter("to", to);
+                }
+                return query.getResultList();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Recherche, dans tous les magasins, les animaux d'au moins un âge donné (par exemple plus d'un an).
+     *
+     * @param age L'âge minimal, inclus.
+     * @param first L'index du premier animal de la page.
+     * @param size Le nombre maximal d'animaux de la page.
+     * @return La page d'animaux, du plus âgé au plus jeune.
+     */
+    public List<Animal> findOlderThan(Period age, int first, int size) {
+        return FIND_OLDER_THAN.measure(() -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.createQuery("select a from Animal a where a.status = :available "
+                                + "and a.birthDate <= :bornBefore order by a.birthDate, a.id", Animal.class)
+                        .setParameter("available", AnimalStatus.AVAILABLE)
+                        .setParameter("bornBefore", bornBefore(age))
+                        .setFirstResult(first)
+                        .setMaxResults(size)
+                        .getResultList();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Compte, dans tous les magasins, les animaux d'au moins un âge donné.
+     *
+     * @param age L'âge minimal, inclus.
+     * @return Le nombre d'animaux.
+     */
+    public long countOlderThan(Period age) {
+        return COUNT_BY_AGE.measure(() -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.createQuery("select count(a) from Animal a "
+                                + "where a.status = :available and a.birthDate <= :bornBefore", Long.class)
+                        .setParameter("available", AnimalStatus.AVAILABLE)
+                        .setParameter("bornBefore", bornBefore(age))
+                        .getSingleResult();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Compte les animaux de chaque magasin par tranche d'âge, en une seule requête.
+     *
+     * @return Une ligne par magasin ayant des animaux, triée par identifiant de magasin.
+     */
+    public List<StoreAgeCount> countByBucketPerStore() {
+        return COUNT_BY_AGE.measure(() -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.createQuery("select new projections.StoreAgeCount(a.petStore.id, "
+                                + "count(case when a.birthDate > :juvenile then 1 end), "
+                                + "count(case when a.birthDate <= :juvenile and a.birthDate > :adult then 1 end), "
+                                + "count(case when a.birthDate <= :adult then 1 end), "
+                                + "count(case when a.birthDate is null then 1 end)) "
+                                + "from Animal a where a.petStore is not null and a.status = :available "
+                                + "group by a.petStore.id order by a.petStore.id", StoreAgeCount.class)
+                        .setParameter("available", AnimalStatus.AVAILABLE)
+                        .setParameter("juvenile", bornBefore(AgeBucket.JUVENILE.getMinimumAge()))
+                        .setParameter("adult", bornBefore(AgeBucket.ADULT.getMinimumAge()))
+                        .getResultList();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Date de naissance la plus récente d'un animal ayant au moins l'âge donné.
+     */
+    private LocalDate bornBefore(Period age) {
+        return LocalDate.now(clock).minus(age);
+    }
+
+    private static Optional<AgeBucket> next(AgeBucket bucket) {
+        AgeBucket[] buckets = AgeBucket.values();
+        return bucket.ordinal() + 1 < buckets.length ? Optional.of(buckets[bucket.ordinal() + 1]) : Optional.empty();
+    }
+}
@@ -0,0 +1,237 @@
+package services;
+
+import entitys.ArchivedAnimal;
+import enumerations.AnimalStatus;
+import enumerations.ChangeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Archivage des animaux sortis des magasins (vendus ou cédés) : ils sont déplacés par lots des tables `animal`,
+ * `CAT` et `FISH` vers la table `animal_archive` ({@link ArchivedAnimal}), pour que les tables des animaux
+ * en magasin et leurs index ne grossissent pas avec l'historique.
+ *
+ * Un animal n'est archivé qu'après un délai de conservation depuis son changement de statut (retours, litiges).
+ * Chaque lot est une transaction : copie par `insert ... select` puis suppression, sans charger les animaux.
+ * Les conditions de sélection sont vérifiées à nouveau par la copie et la suppression : si un animal change
+ * de statut pendant l'archivage, le lot est annulé et sera repris au prochain passage.
+ * Les requêtes HQL fonctionnent avec les deux stratégies d'héritage (JOINED et SINGLE_TABLE).
+ * Si un {@link ChangeLog} est fourni, la suppression de chaque animal archivé y est ajoutée une fois le lot validé.
+ *
+ * L'historique archivé reste consultable avec {@link #findArchived(Long)} et {@link #findArchivedByStore}.
+ */
+public class AnimalArchiver {
+
+    /** Délai de conservation par défaut d'un animal vendu ou cédé dans les tables des animaux en magasin. */
+    public static final Duration DEFAULT_RETENTION = Duration.ofDays(30);
+
+    /** Nombre d'animaux archivés par transaction, par défaut. */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /** Statuts des animaux à archiver. */
+    private static final Set<AnimalStatus> ARCHIVABLE = EnumSet.of(AnimalStatus.SOLD, AnimalStatus.TRANSFERRED_OUT);
+
+    // Sélection des animaux à archiver, reprise par la copie et la suppression
+    private static final String ARCHIVABLE_CONDITION =
+            "a.id in :ids and a.status in :statuses and a.statusChangedAt < :cutoff";
+
+    private static final String ARCHIVED_COLUMNS =
+            "insert into ArchivedAnimal (id, species, birthDate, color, petStoreId, status, statusChangedAt, archivedAt";
+
+    private final EntityManagerFactory emf;
+    private final Duration retention;
+    private final int batchSize;
+    private final ChangeLog changeLog;
+
+    /**
+     * Constructeur utilisant le délai de conservation et la taille de lot par défaut.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     */
+    public AnimalArchiver(EntityManagerFactory emf) {
+        this(emf, DEFAULT_RETENTION, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructeur avec un délai de conservation et une taille de lot spécifiques.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @param retention Le délai entre la vente (ou la cession) d'un animal et son archivage.
+     * @param batchSize Le nombre d'animaux archivés par transaction.
+     */
+    public AnimalArchiver(EntityManagerFactory emf, Duration retention, int batchSize) {
+        this(emf, retention, batchSize, null);
+    }
+
+    /**
+     * Constructeur qui signale les animaux archivés à un journal des modifications.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @param retention Le délai entre la vente (ou la cession) d'un animal et son archivage.
+     * @param batchSize Le nombre d'animaux archivés par transaction.
+     * @param changeLog Le journal des modifications, ou null.
+     */
+    public AnimalArchiver(EntityManagerFactory emf, Duration retention, int batchSize, ChangeLog changeLog) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize doit être strictement positif : " + batchSize);
+        }
+        this.emf = emf;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * Archive tous les animaux vendus ou cédés depuis plus que le délai de conservation, lot par lot.
+     * Un lot annulé (animal modifié pendant l'archivage) arrête le passage : les lots précédents restent archivés.
+     *
+     * @return Le bilan de l'archivage.
+     */
+    public ArchiveReport archive() {
+        long start = System.nanoTime();
+        Instant cutoff = Instant.now().minus(retention);
+        long archived = 0;
+        int batches = 0;
+        int rows;
+        do {
+            rows = archiveBatch(cutoff);
+            archived += rows;
+            if (rows > 0) {
+                batches++;
+            }
+        } while (rows == batchSize);
+        return new ArchiveReport(archived, batches, System.nanoTime() - start);
+    }
+
+    /**
+     * Archive un lot d'animaux dans sa propre transaction.
+     *
+     * @return Le nombre d'animaux archivés.
+     */
+    private int archiveBatch(Instant cutoff) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            List<Object[]> selected = em.createQuery("select a.id, type(a) from Animal a "
+                            + "where a.status in :statuses and a.statusChangedAt < :cutoff order by a.id", Object[].class)
+                    .setParameter("statuses", ARCHIVABLE)
+                    .setParameter("cutoff", cutoff)
+                    .setMaxResults(batchSize)
+                    .getResultList();
+            // Identifiants par nom d'entité concrète ("Cat", "Fish"...), tel qu'enregistré par ChangeLog.capture
+            Map<String, List<Long>> idsByEntity = new LinkedHashMap<>();
+            List<Long> ids = new ArrayList<>(selected.size());
+            for (Object[] row : selected) {
+                Long id = (Long) row[0];
+                ids.add(id);
+                idsByEntity.computeIfAbsent(((Class<?>) row[1]).getSimpleName(), name -> new ArrayList<>()).add(id);
+            }
+            if (ids.isEmpty()) {
+                em.getTransaction().commit();
+                return 0;
+            }
+
+            Instant now = Instant.now();
+            int copied = copy(em, ARCHIVED_COLUMNS + ", chipld) select a.id, 'Cat', a.birthDate, a.color, "
+                    + "a.petStore.id, a.status, a.statusChangedAt, :now, a.chipld from Cat a where ", ids, cutoff, now);
+            copied += copy(em, ARCHIVED_COLUMNS + ", linvingEnv) select a.id, 'Fish', a.birthDate, a.color, "
+                    + "a.petStore.id, a.status, a.statusChangedAt, :now, a.linvingEnv from Fish a where ", ids, cutoff, now);
+            copied += copy(em, ARCHIVED_COLUMNS + ") select a.id, 'Animal', a.birthDate, a.color, "
+                    + "a.petStore.id, a.status, a.statusChangedAt, :now from Animal a where type(a) = Animal and ",
+                    ids, cutoff, now);
+            int deleted = em.createQuery("delete from Animal a where " + ARCHIVABLE_CONDITION)
+                    .setParameter("ids", ids)
+                    .setParameter("statuses", ARCHIVABLE)
+                    .setParameter("cutoff", cutoff)
+                    .executeUpdate();
+            if (copied != ids.size() || deleted != ids.size()) {
+                throw new IllegalStateException("Animaux modifiés pendant l'archivage : " + ids.size()
+                        + " sélectionnés, " + copied + " copiés, " + deleted + " supprimés");
+            }
+            if (changeLog != null) {
+                idsByEntity.forEach((entity, entityIds) ->
+                        changeLog.appendOnCommit(em, ChangeType.DELETE, entity, entityIds));
+            }
+            em.getTransaction().commit();
+            return deleted;
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    private static int copy(EntityManager em, String insertSelect, List<Long> ids, Instant cutoff, Instant now) {
+        return em.createQuery(insertSelect + ARCHIVABLE_CONDITION)
+                .setParameter("ids", ids)
+                .setParameter("statuses", ARCHIVABLE)
+                .setParameter("cutoff", cutoff)
+                .setParameter("now", now)
+                .executeUpdate();
+    }
+
+    /**
+     * Recherche un animal archivé par son identifiant (celui de l'animal d'origine).
+     *
+     * @param id L'identifiant de l'animal.
+     * @return L'animal archivé, s'il l'a été.
+     */
+    public Optional<ArchivedAnimal> findArchived(Long id) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return Optional.ofNullable(em.find(ArchivedAnimal.class, id));
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Récupère une page de l'historique des animaux archivés d'un magasin, des plus récemment sortis aux plus anciens.
+     *
+     * @param petStoreId L'identifiant du magasin.
+     * @param first L'index du premier animal de la page.
+     * @param size Le nombre maximal d'animaux de la page.
+     * @return La page d'animaux archivés.
+     */
+    public List<ArchivedAnimal> findArchivedByStore(long petStoreId, int first, int size) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("select a from ArchivedAnimal a where a.petStoreId = :store "
+                            + "order by a.statusChangedAt desc, a.id", ArchivedAnimal.class)
+                    .setParameter("store", petStoreId)
+                    .setFirstResult(first)
+                    .setMaxResults(size)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Bilan d'un archivage.
+     *
+     * @param archived Le nombre d'animaux archivés.
+     * @param batches Le nombre de lots (transactions).
+     * @param elapsedNanos La durée totale de l'archivage.
+     */
+    public record ArchiveReport(long archived, int batches, long elapsedNanos) {
+
+        @Override
+        public String toString() {
+            return String.format("%d animaux archivés en %d lots (%d ms)", archived, batches, elapsedNanos / 1_000_000);
+        }
+    }
+}
@@ -3,13 +3,16 @@ package services;
 import entitys.*;
 import enumerations.FishLivEnv;
 import enumerations.ProdType;
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.Persistence;
+import org.jboss.logging.Logger;
 
-import java.util.Date;
+import java.time.LocalDate;
+import java.util.List;
 
 public class App {
+
+    private static final Logger LOG = Logger.getLogger(App.class);
+
     public static void main(String[] args) {
         /* Création d'objets Adresse */
         Adress adress1 = new Adress("3B", "Impasse des moutons", "83500", "La Seyne sur Mer");
@@ -27,10 +30,10 @@ public class App {
         Product product3 = new Product("3", "toxic", ProdType.CLEANING, 30.8);
 
         /* Création d'objets Animal, Fish et Cat */
-        Fish fish1 = new Fish(new Date(), "bleu", petStore1, FishLivEnv.FRESH_WATER);
-        Fish fish2 = new Fish(new Date(), "pink", petStore2, FishLivEnv.SEA_WATER);
-        Cat cat1 = new Cat(new Date(), "white", petStore3, "Inconnu");
-        Cat cat2 = new Cat(new Date(), "black", petStore3, "Inconnu");
+        Fish fish1 = new Fish(LocalDate.now(), "bleu", petStore1, FishLivEnv.FRESH_WATER);
+        Fish fish2 = new Fish(LocalDate.now(), "pink", petStore2, FishLivEnv.SEA_WATER);
+        Cat cat1 = new Cat(LocalDate.now(), "white", petStore3, "Inconnu");
+        Cat cat2 = new Cat(LocalDate.now(), "black", petStore3, "Inconnu");
 
 
         /* Ajout des animaux aux PetStore */
@@ -44,23 +47,14 @@ public class App {
         petStore2.addProducts(product2);
         petStore3.addProducts(product3);
 
-        /* Paramétrage de création de la DB avec JPA */
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("TpPetstore");
-        EntityManager em = emf.createEntityManager();
-        em.getTransaction().begin();
-
-        /* Insertion des objets adresse en DB */
-        em.persist(adress1);
-        em.persist(adress2);
-        em.persist(adress3);
+        /* Paramétrage de création de la DB avec JPA ("TpPetstore-production" : schéma vérifié par les migrations) */
+        EntityManagerFactory emf = PersistenceBootstrap.start(System.getProperty("tppetstore.unit", "TpPetstore"));
 
-        /* Insertion dans la DB en cascade */
-        em.persist(petStore1);
-        em.persist(petStore2);
-        em.persist(petStore3);
+        /* Insertion des magasins (adresses mises sous forme canonique, animaux et produits en cascade) par lots JDBC */
+        BulkImporter importer = new BulkImporter(emf, BulkImporter.DEFAULT_BATCH_SIZE, new AdressCanonicalizer());
+        BulkImporter.ImportReport report = importer.importAll(List.of(petStore1, petStore2, petStore3));
+        LOG.info(report);
 
-        em.getTransaction().commit();
-        em.close();
         emf.close();
     }
 }
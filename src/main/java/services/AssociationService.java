@@ -0,0 +1,119 @@
+package services;
+
+import entitys.Animal;
+import entitys.PetStore;
+import entitys.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.query.NativeQuery;
+
+/**
+ * Service de maintenance des associations entre magasins, animaux et produits.
+ * Ses opérations coûtent un nombre constant de requêtes : elles ne chargent jamais les collections
+ * `PetStore.animals`, `PetStore.products` ou `Product.petStores`, quelle que soit leur taille.
+ */
+public class AssociationService {
+
+    private final EntityManagerFactory emf;
+
+    /**
+     * Constructeur du service.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     */
+    public AssociationService(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    /**
+     * Déplace un animal vers un autre magasin.
+     * Le nouveau magasin est référencé par un proxy : seule la clé étrangère de l'animal est mise à jour.
+     *
+     * @param animalId L'identifiant de l'animal.
+     * @param petStoreId L'identifiant du magasin de destination.
+     * @return true si l'animal existe et a été déplacé, false sinon.
+     */
+    public boolean moveAnimal(Long animalId, Long petStoreId) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Animal animal = em.find(Animal.class, animalId);
+            if (animal != null) {
+                animal.setPetStore(em.getReference(PetStore.class, petStoreId));
+            }
+            em.getTransaction().commit();
+            return animal != null;
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Ajoute un produit au catalogue d'un magasin, directement dans la table de jointure.
+     * Les entrées de cache des deux collections concernées sont invalidées après le commit.
+     *
+     * Deux appels concurrents pour le même lien peuvent passer tous deux la vérification d'existence : le second
+     * à écrire est refusé par la clé primaire de la table de jointure, et le lien est alors considéré comme existant.
+     *
+     * @param petStoreId L'identifiant du magasin.
+     * @param productId L'identifiant du produit.
+     * @return true si le lien a été créé, false s'il existait déjà.
+     */
+    public boolean linkProduct(Long petStoreId, Long productId) {
+        EntityManager em = emf.createEntityManager();
+        int inserted;
+        try {
+            em.getTransaction().begin();
+            inserted = em.createNativeQuery(
+                            "insert into petStore_product (ID_PETSTORE, ID_PRODUCT) " +
+                            "select :store, :product where not exists (" +
+                            "select 1 from petStore_product where ID_PETSTORE = :store and ID_PRODUCT = :product)")
+                    .setParameter("store", petStoreId)
+                    .setParameter("product", productId)
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace("petStore_product")  // Invalide les requêtes en cache sur cette table
+                    .executeUpdate();
+            em.getTransaction().commit();
+        } catch (ConstraintViolationException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            // Lien inséré entre-temps par une autre transaction ; sinon, magasin ou produit inexistant
+            if (isLinked(em, petStoreId, productId)) {
+                return false;
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+
+        if (inserted > 0) {
+            Cache cache = emf.unwrap(SessionFactory.class).getCache();
+            cache.evictCollectionData(PetStore.class.getName() + ".products", petStoreId);
+            cache.evictCollectionData(Product.class.getName() + ".petStores", productId);
+        }
+        return inserted > 0;
+    }
+
+    private static boolean isLinked(EntityManager em, Long petStoreId, Long productId) {
+        return !em.createNativeQuery(
+                        "select 1 from petStore_product where ID_PETSTORE = :store and ID_PRODUCT = :product")
+                .setParameter("store", petStoreId)
+                .setParameter("product", productId)
+                .getResultList()
+                .isEmpty();
+    }
+}
@@ -0,0 +1,250 @@
+package services;
+
+import entitys.Adress;
+import entitys.PetStore;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
+import org.hibernate.LockMode;
+import org.hibernate.engine.spi.CascadeStyle;
+import org.hibernate.engine.spi.CascadingActions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.Statistics;
+import org.hibernate.type.Type;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Service d'import en masse des entités (magasins, animaux, produits, adresses).
+ * Les entités sont persistées par lots : toutes les `batchSize` entités, le contexte de persistance
+ * est vidé (flush) puis nettoyé (clear), ce qui permet à Hibernate d'envoyer des batchs JDBC
+ * et garde la mémoire constante quel que soit le volume importé.
+ *
+ * Une entité déjà importée dans un lot précédent est détachée par le nettoyage du contexte. Si une racine
+ * l'atteint par cascade (un produit commun à plusieurs magasins, ou l'adresse d'un magasin importée à part),
+ * elle est rattachée à la session avant la persistance de la racine : elle est référencée, sans être réinsérée.
+ * Une racine déjà persistée est refusée.
+ *
+ * Avec un {@link AdressCanonicalizer}, les adresses importées (racines ou adresses des magasins) sont mises
+ * sous forme canonique avant d'être persistées : les valeurs répétées partagent une seule instance en mémoire,
+ * et le bilan de l'import indique les adresses en double et la mémoire économisée.
+ *
+ * Le débit est mesuré en lignes écrites, cascades comprises, d'après les statistiques Hibernate
+ * (`hibernate.generate_statistics`) relevées avant et après l'import.
+ */
+public class BulkImporter {
+
+    /** Taille de lot utilisée par défaut, alignée sur `hibernate.jdbc.batch_size`. */
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    private final EntityManagerFactory emf;
+    private final int batchSize;
+    private final AdressCanonicalizer canonicalizer;
+
+    /**
+     * Constructeur utilisant la taille de lot par défaut.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance cible.
+     */
+    public BulkImporter(EntityManagerFactory emf) {
+        this(emf, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructeur avec une taille de lot spécifique.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance cible.
+     * @param batchSize Le nombre d'entités persistées entre deux flush/clear (et taille des batchs JDBC).
+     */
+    public BulkImporter(EntityManagerFactory emf, int batchSize) {
+        this(emf, batchSize, null);
+    }
+
+    /**
+     * Constructeur avec une taille de lot spécifique et une mise en forme canonique des adresses.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance cible.
+     * @param batchSize Le nombre d'entités persistées entre deux flush/clear (et taille des batchs JDBC).
+     * @param canonicalizer Le dictionnaire des adresses, partageable entre plusieurs imports ; null pour importer
+     *                      les adresses telles quelles.
+     */
+    public BulkImporter(EntityManagerFactory emf, int batchSize, AdressCanonicalizer canonicalizer) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize doit être strictement positif : " + batchSize);
+        }
+        this.emf = emf;
+        this.batchSize = batchSize;
+        this.canonicalizer = canonicalizer;
+    }
+
+    /**
+     * Importe toutes les entités dans une seule transaction, par lots de `batchSize`.
+     *
+     * @param entities Les entités racines à persister (les associations en cascade suivent).
+     * @return Le bilan de l'import (nombre d'entités racines et de lignes écrites, durée, débit, adresses).
+     * @throws IllegalArgumentException si une racine est déjà persistée (l'import est alors annulé).
+     */
+    public ImportReport importAll(Iterable<?> entities) {
+        long start = System.nanoTime();
+        long count = 0;
+        SessionFactoryImplementor factory = emf.unwrap(SessionFactoryImplementor.class);
+        long rowsBefore = writtenRows(factory);
+        AdressCanonicalizer.Report adressesBefore = canonicalizer == null ? null : canonicalizer.report();
+        Set<Adress> canonicalized = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        EntityManager em = emf.createEntityManager();
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        session.setJdbcBatchSize(batchSize);       // Taille des batchs JDBC pour cette session
+        session.setHibernateFlushMode(FlushMode.COMMIT); // Pas de flush automatique avant les requêtes
+        session.setCacheMode(CacheMode.IGNORE);    // L'import ne doit pas remplir les caches
+        try {
+            em.getTransaction().begin();
+            for (Object entity : entities) {
+                canonicalize(entity, canonicalized);
+                if (isPersisted(session, entity)) {
+                    throw new IllegalArgumentException("Entité déjà persistée : " + entity);
+                }
+                reattachImported(session, entity);
+                em.persist(entity);
+                count++;
+                // Fin d'un lot : envoi des insertions puis libération du contexte de persistance
+                if (count % batchSize == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+
+        long rowsAfter = writtenRows(factory);
+        return new ImportReport(count, rowsBefore < 0 || rowsAfter < 0 ? -1 : rowsAfter - rowsBefore,
+                System.nanoTime() - start, canonicalizer == null ? null : canonicalizer.report().since(adressesBefore));
+    }
+
+    /**
+     * Compte les lignes écrites depuis le démarrage de la fabrique : entités insérées, et collections créées
+     * ou mises à jour côté propriétaire (les collections inverses, comme `PetStore.animals`, n'écrivent rien).
+     * Les statistiques étant globales, les écritures concurrentes d'autres sessions sont comptées aussi.
+     *
+     * @return Le nombre de lignes écrites, ou -1 si les statistiques Hibernate sont désactivées.
+     */
+    private static long writtenRows(SessionFactoryImplementor factory) {
+        Statistics statistics = factory.getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return -1;
+        }
+        long rows = statistics.getEntityInsertCount();
+        for (String role : statistics.getCollectionRoleNames()) {
+            if (!factory.getMappingMetamodel().getCollectionDescriptor(role).isInverse()) {
+                CollectionStatistics collection = statistics.getCollectionStatistics(role);
+                rows += collection.getRecreateCount() + collection.getUpdateCount();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Rattache à la session les entités qu'une racine atteint par la cascade PERSIST et qui sont déjà persistées,
+     * par exemple importées dans un lot précédent : la cascade les refuserait sinon ("detached entity passed to
+     * persist"). Le rattachement ne lit ni n'écrit rien en base ; leurs collections non chargées sont ignorées.
+     */
+    private static void reattachImported(SessionImplementor session, Object entity) {
+        EntityPersister persister = session.getEntityPersister(null, entity);
+        Object[] values = persister.getValues(entity);
+        Type[] types = persister.getPropertyTypes();
+        CascadeStyle[] cascades = persister.getPropertyCascadeStyles();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null || !cascades[i].doCascade(CascadingActions.PERSIST)) {
+                continue;
+            }
+            if (types[i].isEntityType()) {
+                reattach(session, values[i]);
+            } else if (types[i].isCollectionType() && Hibernate.isInitialized(values[i])
+                    && values[i] instanceof Collection<?> associated) {
+                associated.forEach(element -> reattach(session, element));
+            }
+        }
+    }
+
+    private static void reattach(SessionImplementor session, Object entity) {
+        if (entity != null && isPersisted(session, entity)) {
+            session.lock(entity, LockMode.NONE);  // Rattachement sans requête, ni vérification de version
+        }
+    }
+
+    /**
+     * Indique si une entité absente de la session a déjà un identifiant (elle est alors détachée).
+     */
+    private static boolean isPersisted(SessionImplementor session, Object entity) {
+        return !session.contains(entity)
+                && Boolean.FALSE.equals(session.getEntityPersister(null, entity).isTransient(entity, session));
+    }
+
+    /**
+     * Met sous forme canonique l'adresse d'une entité racine, avant sa persistance.
+     * Les adresses en double sont conservées : chaque magasin a sa propre ligne d'adresse (contrainte d'unicité),
+     * mais leurs chaînes sont partagées. Une adresse déjà traitée par l'import (racine puis adresse d'un magasin)
+     * ne l'est pas une seconde fois : elle serait comptée comme son propre double.
+     *
+     * @param canonicalized Les adresses déjà mises sous forme canonique par l'import en cours (par identité).
+     */
+    private void canonicalize(Object entity, Set<Adress> canonicalized) {
+        if (canonicalizer == null) {
+            return;
+        }
+        Adress adress = entity instanceof PetStore store ? store.getAdress()
+                : entity instanceof Adress root ? root : null;
+        if (adress != null && canonicalized.add(adress)) {
+            canonicalizer.canonicalize(adress);
+        }
+    }
+
+    /**
+     * Bilan d'un import en masse.
+     *
+     * @param entities Le nombre d'entités racines persistées.
+     * @param rows Le nombre de lignes écrites, cascades comprises, -1 si les statistiques Hibernate sont désactivées.
+     * @param elapsedNanos La durée totale de l'import, commit compris.
+     * @param adresses Le bilan de la mise en forme canonique des adresses, null si elle n'est pas activée.
+     */
+    public record ImportReport(long entities, long rows, long elapsedNanos, AdressCanonicalizer.Report adresses) {
+
+        /**
+         * Calcule le débit de l'import.
+         *
+         * @return Le nombre de lignes écrites par seconde (entités racines, entités persistées en cascade
+         *         et collections), -1 si les statistiques Hibernate sont désactivées.
+         */
+        public double rowsPerSecond() {
+            if (rows < 0) {
+                return -1;
+            }
+            return elapsedNanos == 0 ? 0 : rows * 1_000_000_000d / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            String report = rows < 0
+                    ? String.format("%d entités racines importées en %d ms (débit inconnu : statistiques Hibernate désactivées)",
+                            entities, elapsedNanos / 1_000_000)
+                    : String.format("%d entités racines importées en %d ms : %d lignes écrites (%.0f lignes/s)",
+                            entities, elapsedNanos / 1_000_000, rows, rowsPerSecond());
+            return adresses == null ? report : report + " ; " + adresses;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package services;
+
+import entitys.Animal;
+import entitys.PetStore;
+import enumerations.ChangeType;
+import enumerations.ProdType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.Query;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Service de modifications en masse, exécutées en une seule requête UPDATE côté base
+ * au lieu de charger puis modifier chaque entité.
+ *
+ * Cohérence après l'opération :
+ * <ul>
+ *     <li>le cache de second niveau et le cache de requêtes sont invalidés par Hibernate pour les tables modifiées ;</li>
+ *     <li>le contexte de persistance utilisé est vidé (flush) avant la requête puis nettoyé (clear) après,
+ *     pour qu'aucune entité gérée ne conserve une valeur périmée ;</li>
+ *     <li>si un {@link ChangeLog} est fourni, chaque entité modifiée y est ajoutée une fois la transaction validée.
+ *     Les entités concernées sont alors sélectionnées et verrouillées avant la mise à jour, qui est limitée
+ *     à ces entités.</li>
+ * </ul>
+ */
+public class BulkMutationService {
+
+    /** Nombre maximal d'identifiants par requête de mise à jour, quand les entités modifiées sont journalisées. */
+    private static final int IDS_PER_UPDATE = 1000;
+
+    private final EntityManagerFactory emf;
+    private final ChangeLog changeLog;
+
+    /**
+     * Constructeur du service, sans journal des modifications.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     */
+    public BulkMutationService(EntityManagerFactory emf) {
+        this(emf, null);
+    }
+
+    /**
+     * Constructeur du service, qui signale les entités modifiées à un journal des modifications.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @param changeLog Le journal des modifications, ou null.
+     */
+    public BulkMutationService(EntityManagerFactory emf, ChangeLog changeLog) {
+        this.emf = emf;
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * Transfère tous les animaux d'une espèce d'un magasin vers un autre, dans sa propre transaction.
+     *
+     * @param fromPetStoreId Le magasin d'origine.
+     * @param toPetStoreId Le magasin de destination.
+     * @param species L'espèce à transférer (`Cat.class`, `Fish.class`, ou `Animal.class` pour tous les animaux).
+     * @return Le bilan de l'opération.
+     */
+    public MutationReport transferAnimals(Long fromPetStoreId, Long toPetStoreId, Class<? extends Animal> species) {
+        return inTransaction(em -> transferAnimals(em, fromPetStoreId, toPetStoreId, species));
+    }
+
+    /**
+     * Transfère tous les animaux d'une espèce d'un magasin vers un autre, dans la transaction de l'appelant.
+     * Le contexte de persistance de l'appelant est vidé puis nettoyé.
+     *
+     * @param em L'EntityManager de l'appelant, avec une transaction active.
+     * @param fromPetStoreId Le magasin d'origine.
+     * @param toPetStoreId Le magasin de destination.
+     * @param species L'espèce à transférer (`Cat.class`, `Fish.class`, ou `Animal.class` pour tous les animaux).
+     * @return Le bilan de l'opération.
+     */
+    public MutationReport transferAnimals(EntityManager em, Long fromPetStoreId, Long toPetStoreId,
+                                          Class<? extends Animal> species) {
+        String entityName = em.getMetamodel().entity(species).getName();
+        return execute(em, "transfert " + entityName + " " + fromPetStoreId + " -> " + toPetStoreId, () ->
+                update(em, entityName,
+                        "e.petStore = :to", Map.of("to", em.getReference(PetStore.class, toPetStoreId)),
+                        "e.petStore.id = :from", Map.of("from", fromPetStoreId)));
+    }
+
+    /**
+     * Modifie le prix de tous les produits d'un type, dans sa propre transaction.
+     * Les nouveaux prix sont arrondis au centime.
+     *
+     * @param type Le type de produits concerné.
+     * @param percent La variation en pourcentage (4 pour +4 %, -10 pour -10 %).
+     * @return Le bilan de l'opération.
+     */
+    public MutationReport reprice(ProdType type, double percent) {
+        return inTransaction(em -> reprice(em, type, percent));
+    }
+
+    /**
+     * Modifie le prix de tous les produits d'un type, dans la transaction de l'appelant.
+     * Le contexte de persistance de l'appelant est vidé puis nettoyé.
+     *
+     * @param em L'EntityManager de l'appelant, avec une transaction active.
+     * @param type Le type de produits concerné.
+     * @param percent La variation en pourcentage (4 pour +4 %, -10 pour -10 %).
+     * @return Le bilan de l'opération.
+     */
+    public MutationReport reprice(EntityManager em, ProdType type, double percent) {
+        // @UpdateTimestamp ne s'applique pas aux mises à jour en masse : updatedAt est affecté par la requête
+        return execute(em, "prix " + type + " " + percent + " %", () ->
+                update(em, "Product",
+                        "e.price = round(e.price * :factor, 2), e.updatedAt = :now",
+                        Map.of("factor", 1 + percent / 100, "now", Instant.now()),
+                        "e.prodType = :type", Map.of("type", type)));
+    }
+
+    /**
+     * Exécute une mise à jour en masse (alias `e`). Avec un journal des modifications, les entités concernées sont
+     * d'abord sélectionnées et verrouillées, puis mises à jour par lots d'identifiants et signalées au journal.
+     *
+     * @return Le nombre de lignes modifiées.
+     */
+    private int update(EntityManager em, String entityName, String assignments, Map<String, ?> assignmentParameters,
+                       String condition, Map<String, ?> conditionParameters) {
+        String update = "update " + entityName + " e set " + assignments + " where " + condition;
+        if (changeLog == null) {
+            return bind(bind(em.createQuery(update), assignmentParameters), conditionParameters).executeUpdate();
+        }
+        Query select = bind(em.createQuery("select e.id, type(e) from " + entityName + " e where " + condition),
+                conditionParameters)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE);  // Aucune autre transaction ne modifie la sélection
+        // Identifiants par nom d'entité concrète ("Cat", "Fish"...), tel qu'enregistré par ChangeLog.capture
+        Map<String, List<Long>> ids = new LinkedHashMap<>();
+        for (Object row : select.getResultList()) {
+            Object[] columns = (Object[]) row;
+            ids.computeIfAbsent(((Class<?>) columns[1]).getSimpleName(), name -> new ArrayList<>())
+                    .add(((Number) columns[0]).longValue());
+        }
+        int rows = 0;
+        for (Map.Entry<String, List<Long>> entry : ids.entrySet()) {
+            List<Long> entityIds = entry.getValue();
+            for (int i = 0; i < entityIds.size(); i += IDS_PER_UPDATE) {
+                rows += bind(bind(em.createQuery(update + " and e.id in :ids"), assignmentParameters),
+                        conditionParameters)
+                        .setParameter("ids", entityIds.subList(i, Math.min(i + IDS_PER_UPDATE, entityIds.size())))
+                        .executeUpdate();
+            }
+            changeLog.appendOnCommit(em, ChangeType.UPDATE, entry.getKey(), entityIds);
+        }
+        return rows;
+    }
+
+    private static Query bind(Query query, Map<String, ?> parameters) {
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+
+    /**
+     * Exécute une requête de mise à jour en masse entre un flush et un clear du contexte de persistance.
+     */
+    private static MutationReport execute(EntityManager em, String operation, BulkUpdate update) {
+        long start = System.nanoTime();
+        em.flush();  // Les modifications en attente doivent précéder la mise à jour en masse
+        int rows = update.run();
+        em.clear();  // Les entités gérées ne reflètent plus la base : on les détache
+        return new MutationReport(operation, rows, System.nanoTime() - start);
+    }
+
+    /**
+     * Exécute une opération dans un nouvel EntityManager et une nouvelle transaction.
+     */
+    private MutationReport inTransaction(Function<EntityManager, MutationReport> operation) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            MutationReport report = operation.apply(em);
+            em.getTransaction().commit();
+            return report;
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Requête de mise à jour en masse, qui retourne le nombre de lignes modifiées.
+     */
+    @FunctionalInterface
+    private interface BulkUpdate {
+        int run();
+    }
+
+    /**
+     * Bilan d'une modification en masse.
+     *
+     * @param operation La description de l'opération.
+     * @param affectedRows Le nombre de lignes modifiées.
+     * @param elapsedNanos La durée de l'opération, hors commit.
+     */
+    public record MutationReport(String operation, int affectedRows, long elapsedNanos) {
+
+        @Override
+        public String toString() {
+            return String.format("%s : %d lignes modifiées en %d ms", operation, affectedRows, elapsedNanos / 1_000_000);
+        }
+    }
+}
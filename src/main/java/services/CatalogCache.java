@@ -0,0 +1,166 @@
+package services;
+
+import entitys.Adress;
+import entitys.PetStore;
+import entitys.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service d'accès au catalogue (produits, magasins et adresses) à travers le cache de second niveau.
+ * Les lectures passent par des requêtes nommées mises en cache : en régime établi, elles ne touchent plus la base.
+ *
+ * Les régions sont en `READ_WRITE` : une modification commitée remplace les entrées des entités modifiées
+ * et de la collection propriétaire `PetStore.products`, et les résultats de requêtes portant sur les tables modifiées
+ * sont invalidés. `PetStore.addProducts` ne met pas à jour le côté inverse `Product.petStores` quand il n'est pas
+ * chargé, et Hibernate n'invalide pas son entrée : elle est supprimée après le commit par `CatalogCacheInvalidator`,
+ * ou par `AssociationService.linkProduct` pour les liens écrits directement dans la table de jointure.
+ */
+public class CatalogCache {
+
+    /** Régions d'entités et de collections du catalogue, telles que déclarées dans `ehcache.xml`. */
+    public static final List<String> DOMAIN_REGIONS = List.of(
+            "catalog.product", "catalog.product.petStores",
+            "catalog.petStore", "catalog.petStore.products",
+            "catalog.adress");
+
+    /** Région des résultats de requêtes du catalogue. */
+    public static final String QUERY_REGION = "catalog.queries";
+
+    private static final PersistenceMetrics.Operation FIND_ALL_PRODUCTS = PersistenceMetrics.operation("Product", "findAll");
+    private static final PersistenceMetrics.Operation FIND_PRODUCT_BY_CODE =
+            PersistenceMetrics.operation("Product", "findByCode");
+    private static final PersistenceMetrics.Operation FIND_ALL_PET_STORES =
+            PersistenceMetrics.operation("PetStore", "findAllCached");
+
+    private final EntityManagerFactory emf;
+
+    /**
+     * Constructeur du service de catalogue.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     */
+    public CatalogCache(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    /**
+     * Récupère tous les produits du catalogue, triés par identifiant.
+     *
+     * @return La liste des produits.
+     */
+    public List<Product> findAllProducts() {
+        return FIND_ALL_PRODUCTS.measure(() -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.createNamedQuery("Product.findAll", Product.class).getResultList();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Recherche un produit par son code.
+     *
+     * @param code Le code du produit.
+     * @return Le produit s'il existe.
+     */
+    public Optional<Product> findProductByCode(String code) {
+        return FIND_PRODUCT_BY_CODE.measure(() -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.createNamedQuery("Product.findByCode", Product.class)
+                        .setParameter("code", code)
+                        .getResultStream()
+                        .findFirst();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Récupère tous les magasins, triés par identifiant.
+     *
+     * @return La liste des magasins.
+     */
+    public List<PetStore> findAllPetStores() {
+        return FIND_ALL_PET_STORES.measure(() -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.createNamedQuery("PetStore.findAll", PetStore.class).getResultList();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Vide les régions du catalogue.
+     * À utiliser lorsque les tables ont été modifiées sans passer par Hibernate (script SQL, autre application).
+     */
+    public void evictAll() {
+        Cache cache = emf.unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(Product.class);
+        cache.evictEntityData(PetStore.class);
+        cache.evictEntityData(Adress.class);
+        cache.evictCollectionData(Product.class.getName() + ".petStores");
+        cache.evictCollectionData(PetStore.class.getName() + ".products");
+        cache.evictQueryRegion(QUERY_REGION);
+    }
+
+    /**
+     * Retourne les statistiques de chaque région du catalogue.
+     *
+     * @return Une ligne de statistiques par région (entités, collections, puis requêtes).
+     */
+    public List<RegionStats> regionStatistics() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        List<RegionStats> result = new ArrayList<>();
+        for (String region : DOMAIN_REGIONS) {
+            result.add(RegionStats.of(region, statistics.getDomainDataRegionStatistics(region)));
+        }
+        result.add(RegionStats.of(QUERY_REGION, statistics.getQueryRegionStatistics(QUERY_REGION)));
+        return result;
+    }
+
+    /**
+     * Statistiques d'une région de cache.
+     *
+     * @param region Le nom de la région.
+     * @param hits Le nombre de lectures servies par le cache.
+     * @param misses Le nombre de lectures absentes du cache.
+     * @param puts Le nombre d'entrées ajoutées au cache.
+     * @param size Le nombre d'entrées actuellement en mémoire (-1 si inconnu).
+     */
+    public record RegionStats(String region, long hits, long misses, long puts, long size) {
+
+        static RegionStats of(String region, CacheRegionStatistics statistics) {
+            if (statistics == null) {
+                return new RegionStats(region, 0, 0, 0, 0);
+            }
+            long size = statistics.getElementCountInMemory();  // Long.MIN_VALUE si le fournisseur ne le sait pas
+            return new RegionStats(region, statistics.getHitCount(), statistics.getMissCount(),
+                    statistics.getPutCount(), size < 0 ? -1 : size);
+        }
+
+        /**
+         * Calcule le taux de succès du cache.
+         *
+         * @return La proportion de lectures servies par le cache, entre 0 et 1.
+         */
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package services;
+
+import entitys.PetStore;
+import entitys.Product;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PreCollectionRecreateEvent;
+import org.hibernate.event.spi.PreCollectionRecreateEventListener;
+import org.hibernate.event.spi.PreCollectionRemoveEvent;
+import org.hibernate.event.spi.PreCollectionRemoveEventListener;
+import org.hibernate.event.spi.PreCollectionUpdateEvent;
+import org.hibernate.event.spi.PreCollectionUpdateEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Invalidation du cache de second niveau de la collection `Product.petStores`, côté inverse de l'association
+ * plusieurs-à-plusieurs avec `PetStore.products`.
+ *
+ * Hibernate n'invalide que le cache de la collection propriétaire (`PetStore.products`) : lier un produit à un magasin
+ * sans charger `Product.petStores` (voir `PetStore.addProducts`) laisserait en cache l'ancienne liste des magasins
+ * du produit. Avant chaque écriture de `PetStore.products`, les produits ajoutés ou retirés sont relevés, et leur entrée
+ * `Product.petStores` est supprimée du cache une fois la transaction validée.
+ *
+ * L'intégrateur est déclaré dans `META-INF/services/org.hibernate.integrator.spi.Integrator` : il s'applique à toutes
+ * les unités de persistance.
+ */
+public class CatalogCacheInvalidator implements Integrator, PreCollectionRecreateEventListener,
+        PreCollectionUpdateEventListener, PreCollectionRemoveEventListener {
+
+    /** Rôle de la collection propriétaire de l'association. */
+    private static final String OWNER_ROLE = PetStore.class.getName() + ".products";
+
+    /** Rôle de la collection inverse, dont le cache est invalidé. */
+    private static final String INVERSE_ROLE = Product.class.getName() + ".petStores";
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                          SessionFactoryImplementor sessionFactory) {
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().requireService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.PRE_COLLECTION_RECREATE, this);
+        registry.appendListeners(EventType.PRE_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.PRE_COLLECTION_REMOVE, this);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        // Rien à libérer : les écouteurs disparaissent avec la fabrique de sessions
+    }
+
+    @Override
+    public void onPreRecreateCollection(PreCollectionRecreateEvent event) {
+        if (isOwnerRole(event)) {
+            evictAfterCommit(event, elements(event.getCollection()));
+        }
+    }
+
+    @Override
+    public void onPreUpdateCollection(PreCollectionUpdateEvent event) {
+        if (!isOwnerRole(event)) {
+            return;
+        }
+        PersistentCollection<?> collection = event.getCollection();
+        if (!collection.wasInitialized()) {
+            // Opérations en attente sur une collection non chargée : ajouts et retraits relevés par Hibernate
+            Set<Object> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+            collection.queuedAdditionIterator().forEachRemaining(changed::add);
+            changed.addAll(collection.getQueuedOrphans(Product.class.getName()));
+            evictAfterCommit(event, changed);
+            return;
+        }
+        // Différence entre le contenu chargé (l'instantané) et le contenu actuel
+        Set<Object> previous = snapshot(collection);
+        Set<Object> current = elements(collection);
+        Set<Object> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+        current.stream().filter(product -> !previous.contains(product)).forEach(changed::add);
+        previous.stream().filter(product -> !current.contains(product)).forEach(changed::add);
+        evictAfterCommit(event, changed);
+    }
+
+    @Override
+    public void onPreRemoveCollection(PreCollectionRemoveEvent event) {
+        if (!isOwnerRole(event)) {
+            return;
+        }
+        PersistentCollection<?> collection = event.getCollection();
+        if (collection == null || !collection.wasInitialized()) {
+            // Magasin supprimé sans charger ses produits : ils sont inconnus, toute la région est invalidée
+            event.getSession().getActionQueue().registerProcess((success, session) -> {
+                if (success) {
+                    session.getFactory().getCache().evictCollectionData(INVERSE_ROLE);
+                }
+            });
+            return;
+        }
+        Set<Object> changed = snapshot(collection);
+        changed.addAll(elements(collection));
+        evictAfterCommit(event, changed);
+    }
+
+    private static boolean isOwnerRole(AbstractCollectionEvent event) {
+        return OWNER_ROLE.equals(event.getSession().getPersistenceContextInternal()
+                .getCollectionEntry(event.getCollection()).getRole());
+    }
+
+    /**
+     * Supprime du cache l'entrée `Product.petStores` des produits, une fois la transaction validée.
+     */
+    private static void evictAfterCommit(AbstractCollectionEvent event, Collection<Object> products) {
+        Set<Object> ids = new HashSet<>();
+        for (Object product : products) {
+            if (product instanceof Product p) {
+                ids.add(p.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        event.getSession().getActionQueue().registerProcess((success, session) -> {
+            if (success) {
+                ids.forEach(id -> session.getFactory().getCache().evictCollectionData(INVERSE_ROLE, id));
+            }
+        });
+    }
+
+    private static Set<Object> elements(PersistentCollection<?> collection) {
+        Set<Object> elements = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (collection instanceof Collection<?> values) {
+            elements.addAll(values);
+        }
+        return elements;
+    }
+
+    /**
+     * Éléments de la collection lors de son chargement (ou de sa dernière écriture).
+     */
+    private static Set<Object> snapshot(PersistentCollection<?> collection) {
+        Set<Object> elements = Collections.newSetFromMap(new IdentityHashMap<>());
+        Object snapshot = collection.getStoredSnapshot();
+        if (snapshot instanceof Map<?, ?> map) {
+            elements.addAll(map.values());
+        } else if (snapshot instanceof Collection<?> values) {
+            elements.addAll(values);
+        }
+        return elements;
+    }
+}
@@ -0,0 +1,487 @@
+package services;
+
+import enumerations.ProdType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import projections.ProductEntry;
+import projections.StoreEntry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Instantané binaire du catalogue (produits, magasins et leurs adresses), projeté en mémoire en lecture seule.
+ *
+ * Au démarrage, l'application projette le fichier écrit par {@link CatalogSnapshotWriter} au lieu de recharger
+ * tout le catalogue depuis la base : l'ouverture ne lit que l'en-tête, et chaque recherche (par identifiant
+ * ou par `Product.code`) lit directement la page projetée. Seul l'enregistrement trouvé est décodé.
+ *
+ * Format du fichier (entiers big-endian, chaînes en UTF-8 précédées de leur longueur sur 2 octets, 0xFFFF pour null) :
+ * <pre>
+ * en-tête (64 octets) : magic, version du format, watermark, date d'écriture, nombres de produits et de magasins,
+ *                       positions des index, taille du fichier
+ * enregistrements     : produits (id, prix, type, code, label) puis magasins (id, nom, gérant, adresse)
+ * index des produits  : couples (id, position) triés par id, parcourus par recherche dichotomique
+ * table des codes     : table de hachage à adressage ouvert (hash du code, position)
+ * index des magasins  : couples (id, position) triés par id
+ * </pre>
+ *
+ * Le watermark est la date de dernière modification (`UPDATED_AT`) la plus récente du catalogue au moment de l'écriture.
+ * {@link #refresh(EntityManagerFactory)} relit en base les seules lignes modifiées depuis, et les conserve en mémoire
+ * dans une surcouche consultée avant le fichier. Les suppressions ne sont pas visibles par ce biais :
+ * elles sont détectées par comparaison des nombres de lignes, et l'instantané doit alors être réécrit.
+ */
+public final class CatalogSnapshot implements AutoCloseable {
+
+    /** Signature des fichiers d'instantané ("PSNP"). */
+    public static final int MAGIC = 0x50534E50;
+
+    /** Version du format, à incrémenter à chaque modification de la disposition du fichier. */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * Marge appliquée au watermark lors du rafraîchissement : une transaction longue peut valider
+     * une date de modification antérieure au watermark. Relire quelques lignes en trop est sans conséquence.
+     */
+    public static final Duration REFRESH_LAG = Duration.ofMinutes(1);
+
+    // Nombre maximal de chaînes d'adresses distinctes partagées par la surcouche
+    private static final int OVERLAY_STRINGS = 10_000;
+
+    static final int HEADER_SIZE = 64;
+    static final int INDEX_ENTRY_SIZE = Long.BYTES + Integer.BYTES;
+    static final int CODE_SLOT_SIZE = 2 * Integer.BYTES;
+    static final int NULL_STRING = 0xFFFF;
+
+    // Positions des champs de l'en-tête
+    static final int H_MAGIC = 0;
+    static final int H_VERSION = 4;
+    static final int H_WATERMARK = 8;
+    static final int H_CREATED_AT = 16;
+    static final int H_PRODUCT_COUNT = 24;
+    static final int H_STORE_COUNT = 28;
+    static final int H_PRODUCT_INDEX = 32;
+    static final int H_CODE_TABLE = 36;
+    static final int H_CODE_SLOTS = 40;
+    static final int H_STORE_INDEX = 44;
+    static final int H_FILE_SIZE = 48;
+
+    // Taille de la partie fixe d'un enregistrement produit (id, prix, type), avant le code
+    private static final int PRODUCT_FIXED_SIZE = Long.BYTES + Double.BYTES + 1;
+
+    private static final ProdType[] PROD_TYPES = ProdType.values();
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final Instant createdAt;
+    private final int productCount;
+    private final int storeCount;
+    private final int productIndex;
+    private final int codeTable;
+    private final int codeSlots;
+    private final int storeIndex;
+
+    private final Map<Long, ProductEntry> productOverlay = new ConcurrentHashMap<>();
+    private final Map<String, ProductEntry> codeOverlay = new ConcurrentHashMap<>();
+    private final Map<Long, StoreEntry> storeOverlay = new ConcurrentHashMap<>();
+    // Les adresses de la surcouche répètent les mêmes rues, codes postaux et villes : une instance par valeur
+    private final AdressCanonicalizer adressStrings = new AdressCanonicalizer(OVERLAY_STRINGS);
+    private volatile Instant watermark;
+    private volatile boolean closed;
+
+    private CatalogSnapshot(Path file, ByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+        this.watermark = Instant.ofEpochMilli(buffer.getLong(H_WATERMARK));
+        this.createdAt = Instant.ofEpochMilli(buffer.getLong(H_CREATED_AT));
+        this.productCount = buffer.getInt(H_PRODUCT_COUNT);
+        this.storeCount = buffer.getInt(H_STORE_COUNT);
+        this.productIndex = buffer.getInt(H_PRODUCT_INDEX);
+        this.codeTable = buffer.getInt(H_CODE_TABLE);
+        this.codeSlots = buffer.getInt(H_CODE_SLOTS);
+        this.storeIndex = buffer.getInt(H_STORE_INDEX);
+    }
+
+    /**
+     * Projette un fichier d'instantané en mémoire.
+     *
+     * @param file Le fichier écrit par {@link CatalogSnapshotWriter}.
+     * @return L'instantané, à fermer après usage.
+     * @throws IllegalStateException si le fichier n'est pas un instantané, est tronqué ou d'une autre version du format.
+     */
+    public static CatalogSnapshot open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Instantané invalide (" + size + " octets) : " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);  // Reste valide après la fermeture du canal
+            if (buffer.getInt(H_MAGIC) != MAGIC) {
+                throw new IllegalStateException("Ce fichier n'est pas un instantané du catalogue : " + file);
+            }
+            if (buffer.getInt(H_VERSION) != FORMAT_VERSION) {
+                throw new IllegalStateException("Version d'instantané " + buffer.getInt(H_VERSION)
+                        + " non supportée (attendue : " + FORMAT_VERSION + ") : " + file);
+            }
+            if (buffer.getLong(H_FILE_SIZE) != size) {
+                throw new IllegalStateException("Instantané tronqué : " + file);
+            }
+            return new CatalogSnapshot(file, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ouvre l'instantané s'il existe et est lisible, sinon l'écrit depuis la base ; puis le met à jour
+     * depuis la base, et le réécrit si des lignes ont été supprimées depuis son écriture.
+     * C'est le point d'entrée prévu pour le démarrage de l'application.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @param file Le fichier d'instantané.
+     * @return L'instantané à jour, à fermer après usage.
+     */
+    public static CatalogSnapshot openOrWrite(EntityManagerFactory emf, Path file) {
+        CatalogSnapshot snapshot = null;
+        if (Files.isReadable(file)) {
+            try {
+                snapshot = open(file);
+                if (snapshot.refresh(emf).complete()) {
+                    return snapshot;
+                }
+                snapshot.close();  // Des lignes ont été supprimées : la surcouche ne suffit pas
+            } catch (IllegalStateException | IndexOutOfBoundsException | BufferUnderflowException e) {
+                // Fichier d'une autre version ou corrompu (position hors du fichier) : il est réécrit
+                if (snapshot != null) {
+                    snapshot.close();
+                }
+            }
+        }
+        new CatalogSnapshotWriter(emf).write(file);
+        return open(file);
+    }
+
+    /**
+     * Recherche un produit par identifiant.
+     *
+     * @param id L'identifiant du produit.
+     * @return Le produit, ou vide s'il n'est pas dans l'instantané.
+     */
+    public Optional<ProductEntry> findProduct(long id) {
+        ensureOpen();
+        ProductEntry updated = productOverlay.get(id);
+        if (updated != null) {
+            return Optional.of(updated);
+        }
+        int offset = search(productIndex, productCount, id);
+        return offset < 0 ? Optional.empty() : Optional.of(readProduct(offset));
+    }
+
+    /**
+     * Recherche un produit par code. Si plusieurs produits partagent le même code, le plus ancien est retourné.
+     *
+     * @param code Le code du produit.
+     * @return Le produit, ou vide s'il n'est pas dans l'instantané.
+     */
+    public Optional<ProductEntry> findProductByCode(String code) {
+        ensureOpen();
+        Objects.requireNonNull(code, "code");
+        ProductEntry updated = codeOverlay.get(code);
+        if (updated != null) {
+            return Optional.of(updated);
+        }
+        byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(bytes);
+        int mask = codeSlots - 1;
+        int slot = spread(hash) & mask;
+        for (int probes = 0; probes < codeSlots; probes++, slot = (slot + 1) & mask) {
+            int position = codeTable + slot * CODE_SLOT_SIZE;
+            int offset = buffer.getInt(position + Integer.BYTES);
+            if (offset < 0) {
+                return Optional.empty();
+            }
+            // Un produit modifié depuis l'écriture a changé de code (sinon il aurait été trouvé dans la surcouche) :
+            // un autre produit du fichier peut encore porter ce code, plus loin dans la séquence de sondage
+            if (buffer.getInt(position) == hash && stringEquals(offset + PRODUCT_FIXED_SIZE, bytes)
+                    && !productOverlay.containsKey(buffer.getLong(offset))) {
+                return Optional.of(readProduct(offset));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Recherche un magasin et son adresse par identifiant de magasin.
+     *
+     * @param id L'identifiant du magasin.
+     * @return Le magasin, ou vide s'il n'est pas dans l'instantané.
+     */
+    public Optional<StoreEntry> findPetStore(long id) {
+        ensureOpen();
+        StoreEntry updated = storeOverlay.get(id);
+        if (updated != null) {
+            return Optional.of(updated);
+        }
+        int offset = search(storeIndex, storeCount, id);
+        return offset < 0 ? Optional.empty() : Optional.of(readStore(offset));
+    }
+
+    /**
+     * Indique si le catalogue a été modifié en base depuis l'écriture ou le dernier rafraîchissement de l'instantané.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @return true si un rafraîchissement est nécessaire.
+     */
+    public boolean isStale(EntityManagerFactory emf) {
+        return lastUpdate(emf).toEpochMilli() > watermark.toEpochMilli();  // Le fichier conserve le watermark à la milliseconde
+    }
+
+    /**
+     * Met à jour l'instantané avec les produits, magasins et adresses modifiés en base depuis le watermark.
+     * Le fichier n'est pas modifié : les lignes relues sont conservées en mémoire et priment sur le fichier.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @return Le bilan du rafraîchissement.
+     */
+    public synchronized RefreshReport refresh(EntityManagerFactory emf) {
+        ensureOpen();
+        Instant nextWatermark = lastUpdate(emf);  // Lu avant les lignes : une modification concurrente sera relue au prochain appel
+        Instant since = watermark.minus(REFRESH_LAG);
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<ProductEntry> products = em.createQuery(
+                            "select new projections.ProductEntry(p.id, p.code, p.label, p.prodType, p.price) " +
+                            "from Product p where p.updatedAt > :since", ProductEntry.class)
+                    .setParameter("since", since)
+                    .getResultList();
+            List<StoreEntry> stores = em.createQuery(
+                            "select new projections.StoreEntry(s.id, s.name, s.managerName, a.id, " +
+                            "a.number, a.street, a.zipCode, a.city) " +
+                            "from PetStore s left join s.adress a where s.updatedAt > :since or a.updatedAt > :since",
+                            StoreEntry.class)
+                    .setParameter("since", since)
+                    .getResultList();
+            long productRows = em.createQuery("select count(p) from Product p", Long.class).getSingleResult();
+            long storeRows = em.createQuery("select count(s) from PetStore s", Long.class).getSingleResult();
+
+            for (ProductEntry product : products) {
+                ProductEntry previous = productOverlay.put(product.id(), product);
+                if (previous != null && previous.code() != null && !previous.code().equals(product.code())) {
+                    codeOverlay.remove(previous.code(), previous);
+                }
+                if (product.code() != null) {
+                    codeOverlay.put(product.code(), product);
+                }
+            }
+            for (StoreEntry store : stores) {
+                storeOverlay.put(store.id(), new StoreEntry(store.id(), store.name(), store.managerName(),
+                        store.adressId(), adressStrings.intern(store.number()), adressStrings.intern(store.street()),
+                        adressStrings.intern(store.zipCode()), adressStrings.intern(store.city())));
+            }
+            watermark = nextWatermark;
+
+            // Sans suppression, chaque ligne en base est soit dans le fichier, soit ajoutée depuis dans la surcouche
+            long expectedProducts = productCount + productOverlay.keySet().stream()
+                    .filter(id -> search(productIndex, productCount, id) < 0).count();
+            long expectedStores = storeCount + storeOverlay.keySet().stream()
+                    .filter(id -> search(storeIndex, storeCount, id) < 0).count();
+            return new RefreshReport(products.size(), stores.size(),
+                    productRows == expectedProducts && storeRows == expectedStores);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * @return Le fichier projeté.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return La date de modification la plus récente prise en compte (écriture du fichier ou dernier rafraîchissement).
+     */
+    public Instant getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * @return La date d'écriture du fichier.
+     */
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * @return Le nombre de produits dans le fichier, hors surcouche.
+     */
+    public int getProductCount() {
+        return productCount;
+    }
+
+    /**
+     * @return Le nombre de magasins dans le fichier, hors surcouche.
+     */
+    public int getPetStoreCount() {
+        return storeCount;
+    }
+
+    /**
+     * Ferme l'instantané. La projection mémoire est libérée par le ramasse-miettes,
+     * le JDK ne permettant pas de la libérer explicitement avec un {@link MappedByteBuffer}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        productOverlay.clear();
+        codeOverlay.clear();
+        storeOverlay.clear();
+    }
+
+    /**
+     * Date de modification la plus récente des tables du catalogue, ou l'époque Unix si elles sont vides.
+     */
+    static Instant lastUpdate(EntityManagerFactory emf) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Instant last = Instant.EPOCH;
+            for (String entity : List.of("Product", "PetStore", "Adress")) {
+                Instant updated = em.createQuery("select max(e.updatedAt) from " + entity + " e", Instant.class)
+                        .getSingleResult();
+                if (updated != null && updated.isAfter(last)) {
+                    last = updated;
+                }
+            }
+            return last;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Hash FNV-1a des octets UTF-8 d'un code produit.
+     */
+    static int hash(byte[] bytes) {
+        int hash = 0x811C9DC5;
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    /**
+     * Répartit les bits de poids fort sur ceux de poids faible, seuls utilisés pour choisir la case.
+     */
+    static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Instantané fermé : " + file);
+        }
+    }
+
+    /**
+     * Recherche dichotomique d'un identifiant dans un index (id, position) trié.
+     *
+     * @return La position de l'enregistrement, ou -1 si l'identifiant est absent.
+     */
+    private int search(int index, int count, long id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = index + mid * INDEX_ENTRY_SIZE;
+            long midId = buffer.getLong(entry);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return buffer.getInt(entry + Long.BYTES);
+            }
+        }
+        return -1;
+    }
+
+    private ProductEntry readProduct(int offset) {
+        long id = buffer.getLong(offset);
+        double price = buffer.getDouble(offset + Long.BYTES);
+        byte type = buffer.get(offset + Long.BYTES + Double.BYTES);
+        int position = offset + PRODUCT_FIXED_SIZE;
+        String code = readString(position);
+        position += stringSize(position);
+        String label = readString(position);
+        return new ProductEntry(id, code, label, type < 0 ? null : PROD_TYPES[type], price);
+    }
+
+    private StoreEntry readStore(int offset) {
+        long id = buffer.getLong(offset);
+        long adressId = buffer.getLong(offset + Long.BYTES);
+        int position = offset + 2 * Long.BYTES;
+        String[] fields = new String[6];  // Nom, gérant, numéro, rue, code postal, ville
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = readString(position);
+            position += stringSize(position);
+        }
+        return new StoreEntry(id, fields[0], fields[1], adressId < 0 ? null : adressId,
+                fields[2], fields[3], fields[4], fields[5]);
+    }
+
+    private String readString(int position) {
+        int length = Short.toUnsignedInt(buffer.getShort(position));
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position + Short.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int stringSize(int position) {
+        int length = Short.toUnsignedInt(buffer.getShort(position));
+        return Short.BYTES + (length == NULL_STRING ? 0 : length);
+    }
+
+    /**
+     * Compare une chaîne du fichier à des octets UTF-8, sans la décoder.
+     */
+    private boolean stringEquals(int position, byte[] bytes) {
+        if (Short.toUnsignedInt(buffer.getShort(position)) != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(position + Short.BYTES + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Bilan d'un rafraîchissement de l'instantané.
+     *
+     * @param products Le nombre de produits relus en base.
+     * @param petStores Le nombre de magasins relus en base.
+     * @param complete false si des lignes ont été supprimées depuis l'écriture du fichier : il doit alors être réécrit.
+     */
+    public record RefreshReport(int products, int petStores, boolean complete) {
+    }
+}
@@ -0,0 +1,321 @@
+package services;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static services.CatalogSnapshot.*;
+
+/**
+ * Écriture d'un instantané binaire du catalogue, relu par {@link CatalogSnapshot}.
+ *
+ * Les produits et les magasins sont lus en flux ({@link InventoryStreamer}) et écrits au fil de l'eau :
+ * seuls les index (12 octets par ligne) sont gardés en mémoire pendant l'écriture.
+ * Le fichier est écrit à côté de sa destination puis renommé, pour qu'un lecteur ne voie jamais un fichier partiel.
+ *
+ * L'application peut appeler {@link #write(Path)} périodiquement (par exemple depuis un
+ * `ScheduledExecutorService`) : les nœuds démarrés ensuite projettent le fichier le plus récent
+ * et ne relisent en base que les lignes modifiées depuis.
+ */
+public class CatalogSnapshotWriter {
+
+    private final EntityManagerFactory emf;
+    private final InventoryStreamer streamer;
+
+    /**
+     * Constructeur de l'écrivain d'instantanés.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     */
+    public CatalogSnapshotWriter(EntityManagerFactory emf) {
+        this.emf = emf;
+        this.streamer = new InventoryStreamer(emf);
+    }
+
+    /**
+     * Écrit un instantané de tout le catalogue, en remplaçant le fichier existant.
+     *
+     * @param file Le fichier de destination.
+     * @return Le bilan de l'écriture.
+     */
+    public SnapshotReport write(Path file) {
+        long start = System.nanoTime();
+        Instant watermark = CatalogSnapshot.lastUpdate(emf);  // Lu avant les lignes : une modification concurrente sera relue au rafraîchissement
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            long size;
+            IndexBuilder products = new IndexBuilder(true);
+            IndexBuilder stores = new IndexBuilder(false);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 RecordOutput out = new RecordOutput(channel)) {
+                out.skip(HEADER_SIZE);  // Écrit en dernier, une fois les positions des index connues
+                writeProducts(out, products);
+                writeStores(out, stores);
+
+                int productIndex = out.position();
+                products.writeIndex(out);
+                int codeTable = out.position();
+                int codeSlots = products.writeCodeTable(out);
+                int storeIndex = out.position();
+                stores.writeIndex(out);
+                out.flush();
+                size = out.position();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(H_MAGIC, MAGIC)
+                        .putInt(H_VERSION, FORMAT_VERSION)
+                        .putLong(H_WATERMARK, watermark.toEpochMilli())
+                        .putLong(H_CREATED_AT, System.currentTimeMillis())
+                        .putInt(H_PRODUCT_COUNT, products.size)
+                        .putInt(H_STORE_COUNT, stores.size)
+                        .putInt(H_PRODUCT_INDEX, productIndex)
+                        .putInt(H_CODE_TABLE, codeTable)
+                        .putInt(H_CODE_SLOTS, codeSlots)
+                        .putInt(H_STORE_INDEX, storeIndex)
+                        .putLong(H_FILE_SIZE, size);
+                channel.write(header, 0);
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new SnapshotReport(file, products.size, stores.size, size, System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeProducts(RecordOutput out, IndexBuilder index) throws IOException {
+        try (Stream<Object[]> rows = streamer.stream(
+                "select p.id, p.price, p.prodType, p.code, p.label from Product p order by p.id", Object[].class)) {
+            for (var iterator = rows.iterator(); iterator.hasNext(); ) {
+                Object[] row = iterator.next();
+                long id = (Long) row[0];
+                byte[] code = encode((String) row[3]);
+                index.add(id, out.position(), code);
+                out.putLong(id);
+                out.putDouble((Double) row[1]);
+                out.putByte(row[2] == null ? -1 : ((Enum<?>) row[2]).ordinal());
+                out.putString(code);
+                out.putString(encode((String) row[4]));
+            }
+        }
+    }
+
+    private void writeStores(RecordOutput out, IndexBuilder index) throws IOException {
+        try (Stream<Object[]> rows = streamer.stream(
+                "select s.id, a.id, s.name, s.managerName, a.number, a.street, a.zipCode, a.city " +
+                "from PetStore s left join s.adress a order by s.id", Object[].class)) {
+            for (var iterator = rows.iterator(); iterator.hasNext(); ) {
+                Object[] row = iterator.next();
+                long id = (Long) row[0];
+                index.add(id, out.position(), null);
+                out.putLong(id);
+                out.putLong(row[1] == null ? -1 : (Long) row[1]);
+                for (int i = 2; i < row.length; i++) {
+                    out.putString(encode((String) row[i]));
+                }
+            }
+        }
+    }
+
+    private static byte[] encode(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_STRING) {
+            throw new IllegalArgumentException("Chaîne trop longue pour un instantané (" + bytes.length + " octets)");
+        }
+        return bytes;
+    }
+
+    /**
+     * Index (id, position) en cours de construction, avec le hash des codes pour les produits.
+     * Les lignes arrivent triées par id : l'index est déjà trié.
+     */
+    private static final class IndexBuilder {
+
+        private long[] ids = new long[1024];
+        private int[] offsets = new int[1024];
+        private int[] hashes;
+        private boolean[] hasCode;
+        private int size;
+
+        IndexBuilder(boolean withCodes) {
+            if (withCodes) {
+                hashes = new int[1024];
+                hasCode = new boolean[1024];
+            }
+        }
+
+        void add(long id, int offset, byte[] code) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+                if (hashes != null) {
+                    hashes = Arrays.copyOf(hashes, size * 2);
+                    hasCode = Arrays.copyOf(hasCode, size * 2);
+                }
+            }
+            ids[size] = id;
+            offsets[size] = offset;
+            if (code != null) {
+                hashes[size] = hash(code);
+                hasCode[size] = true;
+            }
+            size++;
+        }
+
+        void writeIndex(RecordOutput out) throws IOException {
+            for (int i = 0; i < size; i++) {
+                out.putLong(ids[i]);
+                out.putInt(offsets[i]);
+            }
+        }
+
+        /**
+         * Écrit la table des codes, remplie au plus à moitié pour garder des sondages courts.
+         * Les produits sont insérés par id croissant : en cas de code en double, le plus ancien est trouvé en premier.
+         *
+         * @return Le nombre de cases de la table (une puissance de 2).
+         */
+        int writeCodeTable(RecordOutput out) throws IOException {
+            int slots = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+            int[] slotHashes = new int[slots];
+            int[] slotOffsets = new int[slots];
+            Arrays.fill(slotOffsets, -1);
+            int mask = slots - 1;
+            for (int i = 0; i < size; i++) {
+                if (!hasCode[i]) {
+                    continue;
+                }
+                int slot = spread(hashes[i]) & mask;
+                while (slotOffsets[slot] >= 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slotHashes[slot] = hashes[i];
+                slotOffsets[slot] = offsets[i];
+            }
+            for (int slot = 0; slot < slots; slot++) {
+                out.putInt(slotHashes[slot]);
+                out.putInt(slotOffsets[slot]);
+            }
+            return slots;
+        }
+    }
+
+    /**
+     * Écriture tamponnée dans un canal de fichier, qui suit la position courante.
+     */
+    private static final class RecordOutput implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private long position;
+
+        RecordOutput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * @return La position courante, qui doit tenir dans un int pour que le fichier puisse être projeté.
+         */
+        int position() {
+            if (position > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Instantané trop volumineux pour être projeté en mémoire");
+            }
+            return (int) position;
+        }
+
+        void skip(int bytes) throws IOException {
+            ensure(bytes);
+            buffer.position(buffer.position() + bytes);
+            position += bytes;
+        }
+
+        void putByte(int value) throws IOException {
+            ensure(1);
+            buffer.put((byte) value);
+            position++;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+            position += Integer.BYTES;
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+            position += Long.BYTES;
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+            position += Double.BYTES;
+        }
+
+        void putString(byte[] bytes) throws IOException {
+            if (bytes == null) {
+                ensure(Short.BYTES);
+                buffer.putShort((short) NULL_STRING);
+                position += Short.BYTES;
+                return;
+            }
+            ensure(Short.BYTES + bytes.length);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+            position += Short.BYTES + bytes.length;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * Bilan de l'écriture d'un instantané.
+     *
+     * @param file Le fichier écrit.
+     * @param products Le nombre de produits.
+     * @param petStores Le nombre de magasins.
+     * @param bytes La taille du fichier.
+     * @param elapsedNanos La durée de l'écriture.
+     */
+    public record SnapshotReport(Path file, int products, int petStores, long bytes, long elapsedNanos) {
+
+        @Override
+        public String toString() {
+            return String.format("%s : %d produits, %d magasins, %d octets en %d ms",
+                    file, products, petStores, bytes, elapsedNanos / 1_000_000);
+        }
+    }
+}
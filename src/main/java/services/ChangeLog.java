@@ -0,0 +1,737 @@
+package services;
+
+import entitys.Adress;
+import entitys.Animal;
+import entitys.PetStore;
+import entitys.Product;
+import enumerations.ChangeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal des modifications (capture de données modifiées) : chaque création, modification ou suppression validée
+ * d'un magasin, d'un animal, d'un produit ou d'une adresse y est ajoutée, pour que les recherches, caches et analyses
+ * en aval suivent la base sans la relire entièrement.
+ *
+ * Le journal est une suite de fichiers segments dans un répertoire, en ajout seul. Chaque segment est nommé
+ * d'après l'offset de son premier enregistrement (`00000000000000000000.log`), et un nouveau segment est ouvert
+ * quand le segment courant atteint sa taille maximale. Chaque enregistrement est compact et autonome :
+ * <pre>
+ * taille (int) | CRC32C (int) | offset (long) | date de validation (long, ms) | type (byte) | identifiant (long)
+ *              | longueur du nom d'entité (short) | nom d'entité (UTF-8)
+ * </pre>
+ * L'offset est le numéro d'ordre de l'enregistrement. Un consommateur lit le journal à partir d'un offset
+ * ({@link #reader(long)}) et conserve le dernier offset traité pour reprendre là où il s'était arrêté.
+ *
+ * Un seul {@link ChangeLog} écrit dans un répertoire. Les lecteurs du même processus sont réveillés à chaque ajout ;
+ * ceux d'un autre processus ({@link #reader(Path, long)}) interrogent les fichiers. Les enregistrements sont visibles
+ * des lecteurs dès leur ajout, et écrits sur disque au plus tard après l'intervalle de synchronisation.
+ * À l'ouverture, un enregistrement incomplet en fin de journal (arrêt brutal) est supprimé. Un enregistrement complet
+ * mais invalide (taille ou CRC incohérents) est une corruption : il n'est jamais ignoré, et la lecture du journal
+ * échoue avec une {@link IllegalStateException}, pour que les enregistrements valides qui le suivent ne soient
+ * ni perdus ni sautés.
+ *
+ * Comme pour tout {@link PostCommitListener}, les modifications en masse (HQL ou SQL) ne sont pas capturées :
+ * leurs auteurs les signalent avec {@link #appendOnCommit(EntityManager, ChangeType, String, Collection)}
+ * (c'est le cas de `BulkMutationService` et `AnimalArchiver` quand un journal leur est fourni).
+ */
+public class ChangeLog implements AutoCloseable {
+
+    /** Taille maximale d'un segment par défaut. */
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    /** Intervalle d'écriture sur disque par défaut. */
+    public static final Duration DEFAULT_SYNC_INTERVAL = Duration.ofSeconds(1);
+
+    /** Longueur maximale d'un nom d'entité, en octets UTF-8. */
+    public static final int MAX_ENTITY_NAME = 255;
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // En-tête d'un enregistrement : taille du contenu et CRC32C du contenu
+    private static final int RECORD_HEADER = 2 * Integer.BYTES;
+
+    // Contenu d'un enregistrement hors nom d'entité : offset, date, type, identifiant, longueur du nom
+    private static final int FIXED_PAYLOAD = 2 * Long.BYTES + 1 + Long.BYTES + Short.BYTES;
+
+    // Attente entre deux lectures des fichiers, pour un lecteur d'un autre processus
+    private static final long POLL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final ChangeType[] CHANGE_TYPES = ChangeType.values();
+
+    private static final Logger LOG = Logger.getLogger(ChangeLog.class);
+
+    /** Entités dont les modifications sont capturées par {@link #capture(EntityManagerFactory)}. */
+    private static final List<Class<?>> CAPTURED = List.of(PetStore.class, Animal.class, Product.class, Adress.class);
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long syncIntervalNanos;
+    private final Object appendLock = new Object();  // Sert aussi à réveiller les lecteurs en attente
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER + FIXED_PAYLOAD + MAX_ENTITY_NAME);
+    private final Thread syncer;
+    private final AtomicLong failures = new AtomicLong();
+
+    // Protégés par appendLock
+    private final Map<EntityManagerFactory, Capture> captures = new IdentityHashMap<>();
+    private FileChannel segment;
+    private long segmentSize;
+    private boolean dirty;
+
+    private volatile long nextOffset;
+    private volatile boolean closed;
+
+    private ChangeLog(Path directory, long segmentBytes, Duration syncInterval) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.syncIntervalNanos = syncInterval.toNanos();
+        Files.createDirectories(directory);
+
+        List<Long> bases = segmentBases(directory);
+        long base = bases.isEmpty() ? 0 : bases.get(bases.size() - 1);
+        segment = FileChannel.open(segmentPath(directory, base),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            recover(base);
+        } catch (IOException | RuntimeException e) {
+            segment.close();
+            throw e;
+        }
+
+        syncer = new Thread(this::syncLoop, "change-log-sync");
+        syncer.setDaemon(true);
+        syncer.start();
+    }
+
+    /**
+     * Ouvre (ou crée) un journal avec la configuration par défaut.
+     *
+     * @param directory Le répertoire des segments.
+     * @return Le journal, prêt à recevoir des enregistrements.
+     * @throws UncheckedIOException si le répertoire ne peut pas être lu ou écrit.
+     * @throws IllegalStateException si le dernier segment contient un enregistrement corrompu.
+     */
+    public static ChangeLog open(Path directory) {
+        return open(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_SYNC_INTERVAL);
+    }
+
+    /**
+     * Ouvre (ou crée) un journal avec une configuration spécifique.
+     *
+     * @param directory Le répertoire des segments.
+     * @param segmentBytes La taille maximale d'un segment.
+     * @param syncInterval Le délai maximal entre l'ajout d'un enregistrement et son écriture sur disque.
+     * @return Le journal, prêt à recevoir des enregistrements.
+     * @throws UncheckedIOException si le répertoire ne peut pas être lu ou écrit.
+     * @throws IllegalStateException si le dernier segment contient un enregistrement corrompu.
+     */
+    public static ChangeLog open(Path directory, long segmentBytes, Duration syncInterval) {
+        if (segmentBytes < RECORD_HEADER + FIXED_PAYLOAD + MAX_ENTITY_NAME) {
+            throw new IllegalArgumentException("segmentBytes trop petit : " + segmentBytes);
+        }
+        try {
+            return new ChangeLog(directory, segmentBytes, syncInterval);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ouverture du journal des modifications " + directory + " impossible", e);
+        }
+    }
+
+    /**
+     * Abonne le journal aux modifications validées des magasins, animaux, produits et adresses.
+     * Le nom d'entité enregistré est celui de la classe de l'entité ("Cat" ou "Fish" pour un animal).
+     * Sans effet si le journal capture déjà les modifications de cette unité ; {@link #close()} le désabonne.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @return Ce journal.
+     * @throws IllegalStateException si le journal est fermé.
+     */
+    public ChangeLog capture(EntityManagerFactory emf) {
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IllegalStateException("Journal des modifications fermé");
+            }
+            captures.computeIfAbsent(emf, factory -> {
+                Capture capture = new Capture();
+                capture.register(factory);
+                return capture;
+            });
+        }
+        return this;
+    }
+
+    /**
+     * Ajoute un enregistrement au journal.
+     *
+     * @param type Le type de modification.
+     * @param entity Le nom de l'entité modifiée.
+     * @param id L'identifiant de l'entité.
+     * @return L'offset de l'enregistrement.
+     * @throws IllegalStateException si le journal est fermé.
+     * @throws UncheckedIOException si l'écriture échoue.
+     */
+    public long append(ChangeType type, String entity, long id) {
+        byte[] name = entity.getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_ENTITY_NAME) {
+            throw new IllegalArgumentException("Nom d'entité trop long : " + entity);
+        }
+        int size = FIXED_PAYLOAD + name.length;
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IllegalStateException("Journal des modifications fermé");
+            }
+            try {
+                if (segmentSize > 0 && segmentSize + RECORD_HEADER + size > segmentBytes) {
+                    roll();
+                }
+                long offset = nextOffset;
+                buffer.clear();
+                buffer.putInt(size).putInt(0)  // CRC calculé une fois le contenu écrit
+                        .putLong(offset)
+                        .putLong(System.currentTimeMillis())
+                        .put((byte) type.ordinal())
+                        .putLong(id)
+                        .putShort((short) name.length)
+                        .put(name);
+                CRC32C crc = new CRC32C();
+                crc.update(buffer.array(), RECORD_HEADER, size);
+                buffer.putInt(Integer.BYTES, (int) crc.getValue());
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    segment.write(buffer);
+                }
+                segmentSize += RECORD_HEADER + size;
+                dirty = true;
+                nextOffset = offset + 1;
+                appendLock.notifyAll();
+                return offset;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Écriture dans le journal des modifications impossible", e);
+            }
+        }
+    }
+
+    /**
+     * Ajoute au journal, une fois la transaction en cours validée, les modifications faites par une requête en masse.
+     * Rien n'est ajouté si la transaction est annulée. Comme pour les modifications capturées, un échec d'écriture
+     * est signalé et compté dans {@link #failures()}.
+     *
+     * @param em L'EntityManager de la transaction en cours.
+     * @param type Le type de modification.
+     * @param entity Le nom de l'entité modifiée.
+     * @param ids Les identifiants des entités modifiées.
+     */
+    public void appendOnCommit(EntityManager em, ChangeType type, String entity, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Long> committed = List.copyOf(ids);
+        em.unwrap(SessionImplementor.class).getActionQueue().registerProcess((success, session) -> {
+            if (success) {
+                committed.forEach(id -> appendQuietly(type, entity, id));
+            }
+        });
+    }
+
+    /**
+     * Ouvre un lecteur du journal, dans le même processus : il est réveillé dès qu'un enregistrement est ajouté.
+     *
+     * @param offset L'offset du premier enregistrement à lire (0 pour tout le journal, {@link #nextOffset()}
+     *               pour les seules modifications à venir).
+     * @return Le lecteur, à fermer après usage.
+     * @throws IllegalArgumentException si l'offset a été supprimé par {@link #deleteSegmentsBefore(long)}.
+     */
+    public Reader reader(long offset) {
+        return new Reader(directory, offset, this);
+    }
+
+    /**
+     * Ouvre un lecteur d'un journal écrit par un autre processus.
+     *
+     * @param directory Le répertoire des segments.
+     * @param offset L'offset du premier enregistrement à lire.
+     * @return Le lecteur, à fermer après usage.
+     * @throws IllegalArgumentException si l'offset a été supprimé par la rétention.
+     */
+    public static Reader reader(Path directory, long offset) {
+        return new Reader(directory, offset, null);
+    }
+
+    /**
+     * @return L'offset du prochain enregistrement ajouté.
+     */
+    public long nextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * @return L'offset du plus ancien enregistrement conservé.
+     */
+    public long firstOffset() {
+        try {
+            return segmentBases(directory).get(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return Le nombre de modifications validées qui n'ont pas pu être ajoutées au journal.
+     */
+    public long failures() {
+        return failures.get();
+    }
+
+    /**
+     * Supprime les segments dont tous les enregistrements précèdent un offset, par exemple le plus petit offset
+     * traité par les consommateurs. Le segment courant n'est jamais supprimé.
+     *
+     * @param offset Le premier offset à conserver.
+     * @return Le nombre de segments supprimés.
+     */
+    public int deleteSegmentsBefore(long offset) {
+        try {
+            List<Long> bases = segmentBases(directory);
+            int deleted = 0;
+            for (int i = 0; i + 1 < bases.size() && bases.get(i + 1) <= offset; i++) {
+                Files.deleteIfExists(segmentPath(directory, bases.get(i)));
+                deleted++;
+            }
+            return deleted;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Suppression des segments du journal impossible", e);
+        }
+    }
+
+    /**
+     * Écrit sur disque les enregistrements ajoutés, sans attendre l'intervalle de synchronisation.
+     */
+    public void sync() {
+        FileChannel channel;
+        synchronized (appendLock) {
+            if (!dirty) {
+                return;
+            }
+            channel = segment;
+            dirty = false;
+        }
+        try {
+            channel.force(false);  // Hors verrou : les ajouts continuent pendant l'écriture sur disque
+        } catch (ClosedChannelException e) {
+            // Segment fermé entre-temps : il a été écrit sur disque à sa fermeture
+        } catch (IOException e) {
+            throw new UncheckedIOException("Synchronisation du journal des modifications impossible", e);
+        }
+    }
+
+    /**
+     * Écrit sur disque les derniers enregistrements et ferme le journal. Les lecteurs restent utilisables.
+     * Le journal se désabonne des unités de persistance dont il capturait les modifications.
+     */
+    @Override
+    public void close() {
+        synchronized (appendLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            captures.values().forEach(PostCommitListener::unregister);
+            captures.clear();
+            try {
+                segment.force(false);
+                segment.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Fermeture du journal des modifications impossible", e);
+            } finally {
+                appendLock.notifyAll();
+            }
+        }
+        LockSupport.unpark(syncer);
+    }
+
+    /**
+     * Relit le dernier segment pour retrouver le prochain offset, et tronque un éventuel enregistrement incomplet.
+     * Une fin de segment remplie de zéros (espace alloué par le système de fichiers mais jamais écrit avant l'arrêt)
+     * est traitée comme un enregistrement incomplet.
+     *
+     * @throws IllegalStateException si un enregistrement du segment est corrompu.
+     */
+    private void recover(long base) throws IOException {
+        Path file = segmentPath(directory, base);
+        long position = 0;
+        long offset = base;
+        Read read;
+        while (true) {
+            try {
+                read = readAt(segment, file, position);
+            } catch (IllegalStateException e) {
+                if (!isZeroFilled(segment, position)) {
+                    throw e;
+                }
+                read = null;
+            }
+            if (read == null) {
+                break;
+            }
+            position += read.size();
+            offset = read.change().offset() + 1;
+        }
+        if (segment.size() > position) {
+            LOG.warnf("Enregistrement incomplet supprimé en fin de journal : %s, position %d (%d octets)",
+                    file, position, segment.size() - position);
+            segment.truncate(position);
+        }
+        segment.position(position);
+        segmentSize = position;
+        nextOffset = offset;
+    }
+
+    // Appelé avec appendLock
+    private void roll() throws IOException {
+        segment.force(false);
+        segment.close();
+        segment = FileChannel.open(segmentPath(directory, nextOffset),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmentSize = 0;
+        dirty = false;
+    }
+
+    private void syncLoop() {
+        while (!closed) {
+            LockSupport.parkNanos(this, syncIntervalNanos);
+            try {
+                sync();
+            } catch (UncheckedIOException e) {
+                LOG.error("Échec de la synchronisation du journal des modifications", e);
+            }
+        }
+    }
+
+    /**
+     * Ajoute un enregistrement après la validation d'une transaction, sans propager d'échec : la transaction
+     * ne peut plus être annulée.
+     */
+    private void appendQuietly(ChangeType type, String entity, long id) {
+        try {
+            append(type, entity, id);
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            LOG.errorf(e, "Échec de l'ajout au journal des modifications : %s %s %d", type, entity, id);
+        }
+    }
+
+    /**
+     * Attend qu'un enregistrement d'offset au moins égal à celui donné soit ajouté.
+     */
+    private void awaitOffset(long offset, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        synchronized (appendLock) {
+            long remaining = timeoutNanos;
+            while (nextOffset <= offset && !closed && remaining > 0) {
+                TimeUnit.NANOSECONDS.timedWait(appendLock, remaining);
+                remaining = deadline - System.nanoTime();
+            }
+        }
+    }
+
+    private static Path segmentPath(Path directory, long base) {
+        return directory.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Offsets de base des segments du répertoire, triés.
+     */
+    private static List<Long> segmentBases(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name, 0, name.length() - SEGMENT_SUFFIX.length(), 10))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Lit l'enregistrement qui commence à une position d'un segment.
+     *
+     * @return L'enregistrement et sa taille, ou null en fin de données (ou si l'enregistrement est incomplet :
+     *         en cours d'écriture, ou interrompu par un arrêt brutal).
+     * @throws IllegalStateException si l'enregistrement est complet mais corrompu.
+     */
+    private static Read readAt(FileChannel channel, Path file, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        if (readFully(channel, header, position) < RECORD_HEADER) {
+            return null;
+        }
+        int size = header.getInt(0);
+        int crc = header.getInt(Integer.BYTES);
+        if (size < FIXED_PAYLOAD || size > FIXED_PAYLOAD + MAX_ENTITY_NAME) {
+            throw corrupted(file, position, "taille " + size + " invalide");
+        }
+        ByteBuffer payload = ByteBuffer.allocate(size);
+        if (readFully(channel, payload, position + RECORD_HEADER) < size) {
+            return null;
+        }
+        CRC32C expected = new CRC32C();
+        expected.update(payload.array(), 0, size);
+        if ((int) expected.getValue() != crc) {
+            throw corrupted(file, position, "CRC invalide");
+        }
+        payload.flip();
+        long offset = payload.getLong();
+        Instant committedAt = Instant.ofEpochMilli(payload.getLong());
+        int type = payload.get();
+        long id = payload.getLong();
+        int nameLength = Short.toUnsignedInt(payload.getShort());
+        if (type < 0 || type >= CHANGE_TYPES.length || nameLength != size - FIXED_PAYLOAD) {
+            throw corrupted(file, position, "contenu invalide");
+        }
+        String entity = new String(payload.array(), payload.position(), nameLength, StandardCharsets.UTF_8);
+        return new Read(new Change(offset, committedAt, CHANGE_TYPES[type], entity, id), RECORD_HEADER + size);
+    }
+
+    private static IllegalStateException corrupted(Path file, long position, String reason) {
+        return new IllegalStateException("Journal des modifications corrompu : " + file + ", position " + position
+                + " (" + reason + ")");
+    }
+
+    /**
+     * Indique si un segment ne contient que des zéros à partir d'une position.
+     */
+    private static boolean isZeroFilled(FileChannel channel, long position) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(8192);
+        for (long at = position; at < channel.size(); at += chunk.limit()) {
+            chunk.clear();
+            if (channel.read(chunk, at) < 0) {
+                break;
+            }
+            chunk.flip();
+            while (chunk.hasRemaining()) {
+                if (chunk.get() != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Enregistrement lu et sa taille dans le segment.
+     */
+    private record Read(Change change, int size) {
+    }
+
+    /**
+     * Une modification validée.
+     *
+     * @param offset Le numéro d'ordre de l'enregistrement dans le journal.
+     * @param committedAt La date d'ajout au journal, juste après la validation de la transaction.
+     * @param type Le type de modification.
+     * @param entity Le nom de l'entité ("PetStore", "Cat", "Fish", "Product", "Adress"...).
+     * @param id L'identifiant de l'entité.
+     */
+    public record Change(long offset, Instant committedAt, ChangeType type, String entity, long id) {
+    }
+
+    /**
+     * Lecteur du journal à partir d'un offset, qui suit les segments au fil des ajouts.
+     * Un lecteur n'est pas partagé entre threads.
+     */
+    public static final class Reader implements AutoCloseable {
+
+        private final Path directory;
+        private final ChangeLog owner;
+        private final long firstOffset;
+        private FileChannel channel;
+        private Path segment;
+        private long position;
+        private long expectedOffset;  // Offset de l'enregistrement attendu à la position courante
+
+        private Reader(Path directory, long offset, ChangeLog owner) {
+            this.directory = directory;
+            this.owner = owner;
+            this.firstOffset = offset;
+            try {
+                List<Long> bases = Files.isDirectory(directory) ? segmentBases(directory) : List.of();
+                long base = 0;
+                for (long candidate : bases) {
+                    if (candidate <= offset) {
+                        base = candidate;
+                    }
+                }
+                if (!bases.isEmpty() && offset < bases.get(0)) {
+                    throw new IllegalArgumentException("Offset " + offset + " supprimé du journal, premier offset : "
+                            + bases.get(0));
+                }
+                expectedOffset = base;
+                open(base);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Lecture du journal des modifications " + directory + " impossible", e);
+            }
+        }
+
+        /**
+         * Lit les enregistrements disponibles, sans attendre.
+         *
+         * @param max Le nombre maximal d'enregistrements.
+         * @return Les enregistrements lus, dans l'ordre des offsets (liste vide si aucun n'est disponible).
+         * @throws IllegalStateException si un enregistrement est corrompu.
+         */
+        public List<Change> poll(int max) {
+            List<Change> changes = new ArrayList<>();
+            try {
+                while (changes.size() < max) {
+                    if (channel == null && !open(expectedOffset)) {
+                        break;  // Segment pas encore créé
+                    }
+                    Read read = readAt(channel, segment, position);
+                    if (read == null) {
+                        // Fin du segment : le segment suivant, s'il existe, commence à l'offset attendu
+                        Path next = segmentPath(directory, expectedOffset);
+                        if (next.equals(segment) || !Files.exists(next)) {
+                            break;
+                        }
+                        read = readAt(channel, segment, position);  // Le dernier enregistrement a pu être complété entre-temps
+                        if (read == null) {
+                            channel.close();
+                            channel = null;
+                            continue;
+                        }
+                    }
+                    position += read.size();
+                    expectedOffset = read.change().offset() + 1;
+                    if (read.change().offset() >= firstOffset) {
+                        changes.add(read.change());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Lecture du journal des modifications impossible", e);
+            }
+            return changes;
+        }
+
+        /**
+         * Lit les enregistrements disponibles, en attendant qu'il y en ait au moins un.
+         *
+         * @param max Le nombre maximal d'enregistrements.
+         * @param timeout Le délai d'attente maximal.
+         * @return Les enregistrements lus (liste vide si le délai a expiré).
+         * @throws InterruptedException si le thread est interrompu pendant l'attente.
+         */
+        public List<Change> poll(int max, Duration timeout) throws InterruptedException {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            List<Change> changes = poll(max);
+            while (changes.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                if (owner != null) {
+                    owner.awaitOffset(Math.max(expectedOffset, firstOffset), remaining);
+                } else {
+                    LockSupport.parkNanos(this, Math.min(remaining, POLL_INTERVAL_NANOS));
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                changes = poll(max);
+            }
+            return changes;
+        }
+
+        /**
+         * @return L'offset du prochain enregistrement à lire : à conserver pour reprendre la lecture plus tard.
+         */
+        public long position() {
+            return Math.max(expectedOffset, firstOffset);
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Ouvre le segment qui commence à un offset, s'il existe.
+         */
+        private boolean open(long base) throws IOException {
+            Path path = segmentPath(directory, base);
+            if (!Files.exists(path)) {
+                return false;
+            }
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            segment = path;
+            position = 0;
+            return true;
+        }
+    }
+
+    /**
+     * Écouteur qui ajoute au journal les modifications validées des entités capturées.
+     * Un échec d'écriture est signalé et compté, sans remettre en cause la transaction, déjà validée.
+     * Une modification validée pendant la fermeture du journal est ignorée.
+     */
+    private final class Capture extends PostCommitListener<Object> {
+
+        Capture() {
+            super(Object.class);
+        }
+
+        @Override
+        boolean accepts(EntityPersister persister) {
+            return CAPTURED.stream().anyMatch(type -> type.isAssignableFrom(persister.getMappedClass()));
+        }
+
+        @Override
+        protected void onCommit(ChangeType type, Object id, Object entity) {
+            if (closed || !(id instanceof Number number)
+                    || CAPTURED.stream().noneMatch(captured -> captured.isInstance(entity))) {
+                return;
+            }
+            appendQuietly(type, Hibernate.getClass(entity).getSimpleName(), number.longValue());
+        }
+    }
+}
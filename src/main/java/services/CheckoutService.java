@@ -0,0 +1,386 @@
+package services;
+
+import entitys.PetStore;
+import entitys.Product;
+import entitys.Stock;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceException;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service de passage en caisse : décrémente le stock d'un produit dans un magasin sans jamais le rendre négatif,
+ * y compris lorsque des milliers de caisses vendent le même produit en même temps.
+ *
+ * Chaque couple magasin / produit a un compteur en mémoire, chargé depuis la table `stock` au premier accès.
+ * Une vente réserve les unités par compare-and-set sur ce compteur : les caisses ne se bloquent pas entre elles,
+ * et ne se gênent que si elles vendent le même produit dans le même magasin. Les unités vendues sont cumulées puis
+ * écrites en base par lots, à intervalle régulier, en une transaction par lot. Chaque écriture est une mise à jour
+ * gardée (`QUANTITY >= :sold`) qui incrémente la version de la ligne : une modification concurrente par une autre
+ * voie (édition de l'entité {@link Stock}) échoue en verrouillage optimiste au lieu d'écraser le stock.
+ * Si une autre voie a diminué le stock en base, la mise à jour gardée échoue : le stock est alors ramené au plus à zéro,
+ * et les unités vendues qu'il ne couvrait pas sont signalées comme survendues ({@link #getOversoldUnits()}).
+ *
+ * Ce service doit être le seul à décrémenter le stock des magasins qu'il gère (un seul nœud par magasin).
+ * Une vente validée n'est durable qu'après l'écriture du lot suivant : {@link #close()} écrit le dernier lot.
+ */
+public class CheckoutService implements AutoCloseable {
+
+    /** Intervalle d'écriture des lots par défaut. */
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(100);
+
+    private static final Logger LOG = Logger.getLogger(CheckoutService.class);
+
+    private final EntityManagerFactory emf;
+    private final Map<StockKey, StockCounter> counters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final AtomicLong soldUnits = new AtomicLong();
+    private final AtomicLong rejectedCheckouts = new AtomicLong();
+    private final AtomicLong oversoldUnits = new AtomicLong();
+
+    /**
+     * Constructeur utilisant l'intervalle d'écriture par défaut.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     */
+    public CheckoutService(EntityManagerFactory emf) {
+        this(emf, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Constructeur avec un intervalle d'écriture spécifique.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @param flushInterval L'intervalle entre deux écritures des ventes en base.
+     */
+    public CheckoutService(EntityManagerFactory emf, Duration flushInterval) {
+        this.emf = emf;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkout-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodNanos = flushInterval.toNanos();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Vend des unités d'un produit dans un magasin, si le stock le permet.
+     *
+     * @param petStoreId L'identifiant du magasin.
+     * @param productId L'identifiant du produit.
+     * @param quantity Le nombre d'unités vendues.
+     * @return true si la vente est acceptée, false si le stock est insuffisant (rien n'est alors réservé).
+     */
+    public boolean checkout(Long petStoreId, long productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("La quantité vendue doit être strictement positive : " + quantity);
+        }
+        if (counter(new StockKey(petStoreId, productId)).reserve(quantity)) {
+            soldUnits.addAndGet(quantity);
+            return true;
+        }
+        rejectedCheckouts.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Ajoute des unités au stock d'un produit dans un magasin, et écrit immédiatement le lot en cours.
+     * La ligne de stock est créée si elle n'existe pas.
+     *
+     * @param petStoreId L'identifiant du magasin.
+     * @param productId L'identifiant du produit.
+     * @param quantity Le nombre d'unités ajoutées.
+     */
+    public void restock(Long petStoreId, long productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("La quantité ajoutée doit être strictement positive : " + quantity);
+        }
+        StockKey key = new StockKey(petStoreId, productId);
+        createIfAbsent(key);
+        counter(key).release(quantity);  // Une vente négative : écrite en base avec le lot
+        flush();
+    }
+
+    /**
+     * Retourne le stock disponible vu par ce service (base et ventes pas encore écrites).
+     *
+     * @param petStoreId L'identifiant du magasin.
+     * @param productId L'identifiant du produit.
+     * @return Le nombre d'unités disponibles.
+     */
+    public int available(Long petStoreId, long productId) {
+        return counter(new StockKey(petStoreId, productId)).available.get();
+    }
+
+    /**
+     * Écrit en base, en une transaction, les ventes accumulées depuis la dernière écriture.
+     * En cas d'échec, les ventes sont conservées pour l'écriture suivante.
+     * Un stock que la base ne couvre plus (modifié par une autre voie) est ramené à zéro : les unités manquantes
+     * sont comptées comme survendues, et retirées du stock disponible vu par ce service.
+     *
+     * @return Le bilan de l'écriture.
+     */
+    public synchronized FlushReport flush() {
+        long start = System.nanoTime();
+        List<StockKey> keys = new ArrayList<>();
+        List<Integer> amounts = new ArrayList<>();
+        counters.forEach((key, counter) -> {
+            int amount = counter.pending.getAndSet(0);
+            if (amount != 0) {
+                keys.add(key);
+                amounts.add(amount);
+            }
+        });
+        if (keys.isEmpty()) {
+            return new FlushReport(0, 0, 0, 0, System.nanoTime() - start);
+        }
+
+        EntityManager em = emf.createEntityManager();
+        List<StockKey> conflicts = new ArrayList<>();
+        List<Integer> conflictAmounts = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        long units = 0;
+        try {
+            em.getTransaction().begin();
+            for (int i = 0; i < keys.size(); i++) {
+                StockKey key = keys.get(i);
+                int amount = amounts.get(i);
+                if (decrement(em, key, amount, true) > 0) {
+                    units += amount;
+                    continue;
+                }
+                // Stock en base inférieur aux ventes : il est vidé, le reste des ventes n'est couvert par rien
+                List<Integer> quantity = em.createQuery("select s.quantity from Stock s " +
+                                "where s.petStore.id = :store and s.product.id = :product", Integer.class)
+                        .setParameter("store", key.petStoreId())
+                        .setParameter("product", key.productId())
+                        .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                        .getResultList();
+                int covered = quantity.isEmpty() ? 0 : Math.max(0, Math.min(amount, quantity.get(0)));
+                if (covered > 0) {
+                    decrement(em, key, covered, false);
+                }
+                units += covered;
+                conflicts.add(key);
+                conflictAmounts.add(amount);
+                // Unités que ce service croyait en base : ventes non couvertes, ou réassort d'une ligne supprimée
+                missing.add(Math.abs(amount - covered));
+            }
+            em.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                counters.get(keys.get(i)).pending.addAndGet(amounts.get(i));  // Réessayé à la prochaine écriture
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+
+        // Stock diminué par une autre voie que ce service : la base fait foi
+        long oversold = 0;
+        for (int i = 0; i < conflicts.size(); i++) {
+            StockKey key = conflicts.get(i);
+            int lost = missing.get(i);
+            // Mise à jour atomique : les réservations concurrentes ne sont pas écrasées
+            counters.get(key).available.updateAndGet(available -> Math.max(0, available - lost));
+            if (conflictAmounts.get(i) > 0) {
+                oversold += lost;
+                LOG.warnf("Stock du produit %d dans le magasin %d insuffisant en base : %d unités survendues",
+                        key.productId(), key.petStoreId(), lost);
+            } else {
+                LOG.warnf("Ligne de stock du produit %d dans le magasin %d supprimée : réassort de %d unités perdu",
+                        key.productId(), key.petStoreId(), lost);
+            }
+        }
+        oversoldUnits.addAndGet(oversold);
+        return new FlushReport(keys.size() - conflicts.size(), units, conflicts.size(), oversold,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Décrémente le stock en base, en incrémentant la version de la ligne.
+     *
+     * @param guarded true pour ne décrémenter que si le stock en base est suffisant.
+     * @return Le nombre de lignes modifiées (0 ou 1).
+     */
+    private static int decrement(EntityManager em, StockKey key, int amount, boolean guarded) {
+        return em.createQuery("update versioned Stock s set s.quantity = s.quantity - :amount " +
+                        "where s.petStore.id = :store and s.product.id = :product" +
+                        (guarded ? " and s.quantity >= :amount" : ""))
+                .setParameter("amount", amount)
+                .setParameter("store", key.petStoreId())
+                .setParameter("product", key.productId())
+                .executeUpdate();
+    }
+
+    /**
+     * @return Le nombre total d'unités vendues par ce service.
+     */
+    public long getSoldUnits() {
+        return soldUnits.get();
+    }
+
+    /**
+     * @return Le nombre de ventes refusées faute de stock.
+     */
+    public long getRejectedCheckouts() {
+        return rejectedCheckouts.get();
+    }
+
+    /**
+     * @return Le nombre d'unités vendues par ce service que le stock en base ne couvrait pas (stock diminué
+     * par une autre voie entre la vente et son écriture).
+     */
+    public long getOversoldUnits() {
+        return oversoldUnits.get();
+    }
+
+    /**
+     * Arrête les écritures périodiques et écrit le dernier lot.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Les ventes sont conservées : l'écriture suivante les réessaiera. Une exception propagée
+            // arrêterait les écritures périodiques.
+            LOG.error("Échec de l'écriture des ventes", e);
+        }
+    }
+
+    /**
+     * Retourne le compteur d'un stock, chargé depuis la base au premier accès.
+     */
+    private StockCounter counter(StockKey key) {
+        StockCounter counter = counters.get(key);
+        if (counter != null) {
+            return counter;
+        }
+        StockCounter loaded = new StockCounter(loadQuantity(key));  // Hors de la map : pas de requête sous son verrou
+        counter = counters.putIfAbsent(key, loaded);
+        return counter == null ? loaded : counter;
+    }
+
+    private int loadQuantity(StockKey key) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Integer> quantity = em.createQuery("select s.quantity from Stock s " +
+                            "where s.petStore.id = :store and s.product.id = :product", Integer.class)
+                    .setParameter("store", key.petStoreId())
+                    .setParameter("product", key.productId())
+                    .getResultList();
+            return quantity.isEmpty() ? 0 : quantity.get(0);
+        } finally {
+            em.close();
+        }
+    }
+
+    private void createIfAbsent(StockKey key) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            if (!exists(em, key)) {
+                em.persist(new Stock(em.getReference(PetStore.class, key.petStoreId()),
+                        em.getReference(Product.class, key.productId()), 0));
+            }
+            em.getTransaction().commit();
+        } catch (PersistenceException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.clear();
+            if (!exists(em, key)) {
+                throw e;
+            }
+            // Ligne créée en même temps par un autre réassort (contrainte d'unicité) : elle existe
+        } finally {
+            em.close();
+        }
+    }
+
+    private static boolean exists(EntityManager em, StockKey key) {
+        return em.createQuery("select count(s) from Stock s " +
+                        "where s.petStore.id = :store and s.product.id = :product", Long.class)
+                .setParameter("store", key.petStoreId())
+                .setParameter("product", key.productId())
+                .getSingleResult() > 0;
+    }
+
+    /**
+     * Identifie le stock d'un produit dans un magasin.
+     */
+    private record StockKey(Long petStoreId, long productId) {
+    }
+
+    /**
+     * Compteur en mémoire du stock d'un produit dans un magasin.
+     */
+    private static final class StockCounter {
+
+        /** Unités disponibles, toujours positif ou nul. */
+        final AtomicInteger available;
+
+        /** Unités vendues (ou, si négatif, ajoutées) pas encore écrites en base. */
+        final AtomicInteger pending = new AtomicInteger();
+
+        StockCounter(int available) {
+            this.available = new AtomicInteger(available);
+        }
+
+        boolean reserve(int quantity) {
+            int current;
+            do {
+                current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+            } while (!available.compareAndSet(current, current - quantity));
+            pending.addAndGet(quantity);
+            return true;
+        }
+
+        void release(int quantity) {
+            available.addAndGet(quantity);
+            pending.addAndGet(-quantity);
+        }
+    }
+
+    /**
+     * Bilan d'une écriture des ventes en base.
+     *
+     * @param stocks Le nombre de stocks dont toutes les ventes (ou tous les réassorts) ont été écrites.
+     * @param units Le nombre d'unités vendues écrites (diminué des unités ajoutées par réassort).
+     * @param conflicts Le nombre de stocks diminués par une autre voie, que la base ne couvrait plus.
+     * @param oversold Le nombre d'unités vendues que le stock en base ne couvrait pas.
+     * @param elapsedNanos La durée de l'écriture.
+     */
+    public record FlushReport(int stocks, long units, int conflicts, long oversold, long elapsedNanos) {
+    }
+}
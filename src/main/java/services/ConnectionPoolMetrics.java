@@ -0,0 +1,105 @@
+package services;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métriques d'un pool de connexions HikariCP.
+ * Cette classe est branchée sur le pool en tant que `MetricsTrackerFactory` et accumule,
+ * sans verrou, les temps d'attente d'obtention de connexion et le nombre de timeouts.
+ * L'état instantané du pool (connexions actives, inactives, threads en attente) est lu sur le pool lui-même.
+ */
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    /** Nombre de connexions obtenues depuis le démarrage du pool. */
+    private final LongAdder acquisitions = new LongAdder();
+
+    /** Cumul des temps d'attente d'obtention d'une connexion, en nanosecondes. */
+    private final LongAdder acquireNanos = new LongAdder();
+
+    /** Plus long temps d'attente observé, en nanosecondes. */
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+
+    /** Nombre de demandes de connexion tombées en timeout. */
+    private final LongAdder timeouts = new LongAdder();
+
+    /** Statistiques instantanées fournies par le pool lors de sa création. */
+    private volatile PoolStats poolStats;
+
+    /**
+     * Récupère les métriques du pool utilisé par une unité de persistance.
+     *
+     * @param emf La fabrique d'EntityManager configurée avec {@link PooledConnectionProvider}.
+     * @return Les métriques du pool de connexions.
+     * @throws IllegalStateException si l'unité de persistance n'utilise pas {@link PooledConnectionProvider}.
+     */
+    public static ConnectionPoolMetrics of(EntityManagerFactory emf) {
+        ConnectionProvider provider = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(ConnectionProvider.class);
+        if (provider == null || !provider.isUnwrappableAs(PooledConnectionProvider.class)) {
+            throw new IllegalStateException("L'unité de persistance n'utilise pas PooledConnectionProvider");
+        }
+        return provider.unwrap(PooledConnectionProvider.class).getMetrics();
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquisitions.increment();
+                acquireNanos.add(elapsedAcquiredNanos);
+                maxAcquireNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    /**
+     * Retourne une photographie des métriques du pool.
+     *
+     * @return L'état courant du pool et les compteurs cumulés depuis son démarrage.
+     */
+    public Snapshot snapshot() {
+        PoolStats stats = poolStats;
+        long count = acquisitions.sum();
+        return new Snapshot(
+                stats == null ? 0 : stats.getActiveConnections(),
+                stats == null ? 0 : stats.getIdleConnections(),
+                stats == null ? 0 : stats.getTotalConnections(),
+                stats == null ? 0 : stats.getPendingThreads(),
+                count,
+                count == 0 ? 0 : acquireNanos.sum() / count,
+                maxAcquireNanos.get(),
+                timeouts.sum());
+    }
+
+    /**
+     * Photographie des métriques d'un pool de connexions.
+     *
+     * @param active Connexions actuellement empruntées.
+     * @param idle Connexions disponibles dans le pool.
+     * @param total Nombre total de connexions ouvertes.
+     * @param pendingThreads Threads en attente d'une connexion.
+     * @param acquisitions Nombre de connexions obtenues depuis le démarrage.
+     * @param meanWaitNanos Temps d'attente moyen pour obtenir une connexion.
+     * @param maxWaitNanos Temps d'attente maximal observé.
+     * @param timeouts Nombre de demandes de connexion tombées en timeout.
+     */
+    public record Snapshot(int active, int idle, int total, int pendingThreads,
+                           long acquisitions, long meanWaitNanos, long maxWaitNanos, long timeouts) {
+    }
+}
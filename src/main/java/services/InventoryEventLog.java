@@ -0,0 +1,450 @@
+package services;
+
+import entitys.InventoryEvent;
+import enumerations.InventoryEventType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.exception.JDBCConnectionException;
+import org.jboss.logging.Logger;
+
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Journal des événements d'inventaire (ventes, réassorts, déplacements d'animaux) à écriture différée.
+ *
+ * Les appelants déposent les événements dans une file bornée sans verrou et reprennent la main aussitôt.
+ * Un thread d'écriture les regroupe et les insère par lots (batchs JDBC), en une transaction par lot :
+ * un lot part dès qu'il est plein, ou au plus tard après l'intervalle d'écriture.
+ *
+ * Contre-pression : quand la file est pleine, {@link #offer(Event)} refuse l'événement et {@link #put(Event)}
+ * attend qu'une place se libère. Un événement occupe sa place jusqu'à la validation de son lot.
+ *
+ * Durabilité : un événement accepté est écrit tant que la base redevient disponible (un lot en échec est réessayé).
+ * Un lot qui échoue plusieurs fois alors que la base répond contient un événement qu'elle refuse : il est alors écrit
+ * par moitiés, jusqu'à isoler les événements refusés, qui sont mis de côté ({@link #discardedEvents()}) pour que
+ * les suivants ne restent pas bloqués derrière eux.
+ * {@link #flush(Duration)} attend l'écriture des événements déjà acceptés, et {@link #close()} (appelé aussi
+ * à l'arrêt de la JVM) refuse les nouveaux événements puis écrit tous ceux de la file.
+ */
+public class InventoryEventLog implements AutoCloseable {
+
+    /** Nombre maximal d'événements en attente d'écriture par défaut. */
+    public static final int DEFAULT_CAPACITY = 100_000;
+
+    /** Nombre maximal d'événements par lot par défaut. */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /** Intervalle d'écriture par défaut. */
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(50);
+
+    /** Délai accordé par {@link #close()} à l'écriture des derniers événements. */
+    public static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /** Nombre d'échecs consécutifs d'un lot, la base répondant, avant de rechercher les événements refusés. */
+    private static final int ATTEMPTS_BEFORE_ISOLATION = 3;
+
+    private static final Logger LOG = Logger.getLogger(InventoryEventLog.class);
+
+    private final EntityManagerFactory emf;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+
+    private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+    private final Queue<Event> discardedEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();  // Événements acceptés et pas encore validés en base
+    private final Thread writer;
+    private final Thread shutdownHook;
+    private volatile boolean closed;
+    private volatile boolean flushRequested;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong commitNanos = new AtomicLong();
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+
+    /**
+     * Constructeur utilisant la configuration par défaut.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     */
+    public InventoryEventLog(EntityManagerFactory emf) {
+        this(emf, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Constructeur avec une configuration spécifique. Le thread d'écriture démarre immédiatement.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @param capacity Le nombre maximal d'événements en attente d'écriture.
+     * @param batchSize Le nombre maximal d'événements par lot (et taille des batchs JDBC).
+     * @param flushInterval Le délai maximal entre l'acceptation d'un événement et le début de son écriture.
+     */
+    public InventoryEventLog(EntityManagerFactory emf, int capacity, int batchSize, Duration flushInterval) {
+        if (capacity <= 0 || batchSize <= 0 || batchSize > capacity) {
+            throw new IllegalArgumentException("Configuration invalide : capacity=" + capacity + ", batchSize=" + batchSize);
+        }
+        this.emf = emf;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.writer = new Thread(this::writeLoop, "inventory-event-writer");
+        this.writer.setDaemon(true);  // L'arrêt de la JVM passe par le crochet d'arrêt, qui écrit la file
+        this.shutdownHook = new Thread(this::close, "inventory-event-log-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        this.writer.start();
+    }
+
+    /**
+     * Enregistre une vente.
+     *
+     * @param petStoreId Le magasin.
+     * @param productId Le produit vendu.
+     * @param quantity Le nombre d'unités vendues.
+     * @throws InterruptedException si le thread est interrompu pendant l'attente d'une place dans la file.
+     */
+    public void recordSale(Long petStoreId, long productId, int quantity) throws InterruptedException {
+        put(new Event(InventoryEventType.SALE, Instant.now(), petStoreId, null, productId, null, quantity));
+    }
+
+    /**
+     * Enregistre un réassort.
+     *
+     * @param petStoreId Le magasin.
+     * @param productId Le produit réassorti.
+     * @param quantity Le nombre d'unités ajoutées.
+     * @throws InterruptedException si le thread est interrompu pendant l'attente d'une place dans la file.
+     */
+    public void recordRestock(Long petStoreId, long productId, int quantity) throws InterruptedException {
+        put(new Event(InventoryEventType.RESTOCK, Instant.now(), petStoreId, null, productId, null, quantity));
+    }
+
+    /**
+     * Enregistre le déplacement d'un animal.
+     *
+     * @param animalId L'animal déplacé.
+     * @param fromPetStoreId Le magasin d'origine.
+     * @param toPetStoreId Le magasin de destination.
+     * @throws InterruptedException si le thread est interrompu pendant l'attente d'une place dans la file.
+     */
+    public void recordTransfer(Long animalId, Long fromPetStoreId, Long toPetStoreId) throws InterruptedException {
+        put(new Event(InventoryEventType.ANIMAL_TRANSFER, Instant.now(), fromPetStoreId, toPetStoreId, null, animalId, 1));
+    }
+
+    /**
+     * Dépose un événement dans la file s'il y a de la place, sans attendre.
+     *
+     * @param event L'événement.
+     * @return true si l'événement est accepté, false si la file est pleine.
+     * @throws IllegalStateException si le journal est fermé.
+     */
+    public boolean offer(Event event) {
+        if (tryEnqueue(event)) {
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Dépose un événement dans la file, en attendant qu'une place se libère si elle est pleine.
+     *
+     * @param event L'événement.
+     * @throws InterruptedException si le thread est interrompu pendant l'attente.
+     * @throws IllegalStateException si le journal est fermé.
+     */
+    public void put(Event event) throws InterruptedException {
+        long backoffNanos = 1_000;
+        while (!tryEnqueue(event)) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            LockSupport.parkNanos(this, backoffNanos);
+            backoffNanos = Math.min(backoffNanos * 2, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Demande l'écriture immédiate de la file et attend que tous les événements déjà acceptés soient validés en base
+     * (ou mis de côté, refusés par la base).
+     *
+     * @param timeout Le délai d'attente maximal.
+     * @return true si les événements ont été traités, false si le délai a expiré.
+     */
+    public boolean flush(Duration timeout) {
+        long target = accepted.get();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        flushRequested = true;
+        LockSupport.unpark(writer);
+        while (committed.get() + discarded.get() < target) {
+            if (System.nanoTime() >= deadline || !writer.isAlive()) {
+                return committed.get() + discarded.get() >= target;
+            }
+            LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        return true;
+    }
+
+    /**
+     * Refuse les nouveaux événements, écrit ceux de la file et arrête le thread d'écriture.
+     * Si la base reste indisponible au-delà de {@link #CLOSE_TIMEOUT}, les événements restants sont perdus et signalés.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(CLOSE_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (depth.get() > 0) {
+            LOG.errorf("Journal d'inventaire fermé avec %d événements non écrits", depth.get());
+        }
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Arrêt de la JVM déjà en cours
+            }
+        }
+    }
+
+    /**
+     * @return Les métriques du journal.
+     */
+    public Metrics metrics() {
+        long batchCount = batches.get();
+        return new Metrics(depth.get(), accepted.get(), rejected.get(), committed.get(), batchCount, failures.get(),
+                discarded.get(), batchCount == 0 ? 0 : commitNanos.get() / batchCount, maxCommitNanos.get());
+    }
+
+    /**
+     * @return Les événements refusés par la base et mis de côté, dans l'ordre où ils ont été isolés.
+     */
+    public List<Event> discardedEvents() {
+        return List.copyOf(discardedEvents);
+    }
+
+    /**
+     * Réserve une place dans la file puis y dépose l'événement.
+     */
+    private boolean tryEnqueue(Event event) {
+        if (closed) {
+            throw new IllegalStateException("Journal d'inventaire fermé");
+        }
+        int current;
+        do {
+            current = depth.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!depth.compareAndSet(current, current + 1));
+        queue.add(event);
+        accepted.incrementAndGet();
+        if (current + 1 >= batchSize) {
+            LockSupport.unpark(writer);  // Un lot complet est disponible
+        }
+        return true;
+    }
+
+    /**
+     * Boucle du thread d'écriture : constitue les lots et les écrit, jusqu'à la fermeture et l'écriture de toute la file.
+     */
+    private void writeLoop() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        long backoffNanos = TimeUnit.MILLISECONDS.toNanos(10);
+        int attempts = 0;
+        while (!closed || depth.get() > 0) {
+            for (Event event; batch.size() < batchSize && (event = queue.poll()) != null; ) {
+                batch.add(event);
+            }
+            long now = System.nanoTime();
+            if (batch.size() < batchSize && !closed && !flushRequested && now < deadline) {
+                LockSupport.parkNanos(this, deadline - now);  // Réveillé plus tôt par un lot complet ou un flush
+                continue;
+            }
+            if (batch.isEmpty()) {
+                flushRequested = false;
+                deadline = now + flushIntervalNanos;
+                if (closed) {
+                    Thread.onSpinWait();  // Un événement accepté juste avant la fermeture est en cours de dépôt
+                }
+                continue;
+            }
+            if (queue.isEmpty()) {
+                flushRequested = false;
+            }
+            try {
+                if (attempts < ATTEMPTS_BEFORE_ISOLATION) {
+                    commit(batch);
+                } else {
+                    isolate(batch);  // Lot en échec répété : les événements refusés sont mis de côté
+                }
+                batch.clear();
+                attempts = 0;
+                backoffNanos = TimeUnit.MILLISECONDS.toNanos(10);
+            } catch (RuntimeException e) {
+                // Événements restants conservés et réessayés : la base est peut-être momentanément indisponible
+                failures.incrementAndGet();
+                attempts = isUnavailable(e) ? 0 : attempts + 1;
+                LOG.warnf(e, "Échec de l'écriture de %d événements (tentative %d)", batch.size(), attempts);
+                LockSupport.parkNanos(this, backoffNanos);
+                backoffNanos = Math.min(backoffNanos * 2, MAX_BACKOFF_NANOS);
+            }
+            deadline = System.nanoTime() + flushIntervalNanos;
+        }
+    }
+
+    /**
+     * Écrit un lot en échec par moitiés, jusqu'à isoler les événements refusés par la base, qui sont mis de côté.
+     * Les événements écrits ou mis de côté sont retirés du lot : si la base devient indisponible entre-temps,
+     * l'exception est propagée et seuls les événements restants sont réessayés.
+     */
+    private void isolate(List<Event> events) {
+        try {
+            commit(events);
+            events.clear();
+            return;
+        } catch (RuntimeException e) {
+            if (isUnavailable(e)) {
+                throw e;
+            }
+            failures.incrementAndGet();
+            if (events.size() == 1) {
+                Event event = events.remove(0);
+                discardedEvents.add(event);
+                discarded.incrementAndGet();
+                depth.decrementAndGet();
+                LOG.errorf(e, "Événement d'inventaire refusé par la base, mis de côté : %s", event);
+                return;
+            }
+        }
+        // Seconde moitié d'abord : la vider ne décale pas les positions de la première
+        int middle = events.size() / 2;
+        isolate(events.subList(middle, events.size()));
+        isolate(events.subList(0, middle));
+    }
+
+    /**
+     * Indique si un échec vient de l'indisponibilité de la base (connexion, délai, conflit passager), et non
+     * des événements écrits.
+     */
+    private static boolean isUnavailable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JDBCConnectionException || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Écrit un lot d'événements en une transaction, par batchs JDBC.
+     */
+    private void commit(List<Event> batch) {
+        long start = System.nanoTime();
+        EntityManager em = emf.createEntityManager();
+        Session session = em.unwrap(Session.class);
+        session.setJdbcBatchSize(batchSize);
+        session.setCacheMode(CacheMode.IGNORE);
+        try {
+            em.getTransaction().begin();
+            for (Event event : batch) {
+                em.persist(event.toEntity());  // Nouvelle entité à chaque tentative : un lot réessayé est réinséré en entier
+            }
+            em.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+        long elapsed = System.nanoTime() - start;
+        depth.addAndGet(-batch.size());
+        committed.addAndGet(batch.size());
+        batches.incrementAndGet();
+        commitNanos.addAndGet(elapsed);
+        maxCommitNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    /**
+     * Événement d'inventaire en attente d'écriture.
+     *
+     * @param type Le type d'événement.
+     * @param occurredAt La date de l'événement.
+     * @param petStoreId Le magasin concerné (magasin d'origine pour un déplacement).
+     * @param targetPetStoreId Le magasin de destination d'un déplacement, sinon null.
+     * @param productId Le produit vendu ou réassorti, sinon null.
+     * @param animalId L'animal déplacé, sinon null.
+     * @param quantity Le nombre d'unités.
+     * @throws NullPointerException si le type ou la date est null (colonnes obligatoires).
+     */
+    public record Event(InventoryEventType type, Instant occurredAt, Long petStoreId, Long targetPetStoreId,
+                        Long productId, Long animalId, int quantity) {
+
+        public Event {
+            Objects.requireNonNull(type, "type");
+            Objects.requireNonNull(occurredAt, "occurredAt");
+        }
+
+        InventoryEvent toEntity() {
+            return new InventoryEvent(type, occurredAt, petStoreId, targetPetStoreId, productId, animalId, quantity);
+        }
+    }
+
+    /**
+     * Métriques du journal.
+     *
+     * @param queueDepth Le nombre d'événements acceptés et pas encore validés en base.
+     * @param accepted Le nombre d'événements acceptés.
+     * @param rejected Le nombre d'événements refusés par {@link #offer(Event)}, file pleine.
+     * @param committed Le nombre d'événements validés en base.
+     * @param batches Le nombre de lots validés.
+     * @param failures Le nombre d'écritures de lot en échec (et réessayées).
+     * @param discarded Le nombre d'événements refusés par la base et mis de côté.
+     * @param meanCommitNanos La durée moyenne d'écriture d'un lot.
+     * @param maxCommitNanos La durée maximale d'écriture d'un lot.
+     */
+    public record Metrics(int queueDepth, long accepted, long rejected, long committed, long batches, long failures,
+                          long discarded, long meanCommitNanos, long maxCommitNanos) {
+
+        /**
+         * @return Le nombre moyen d'événements par lot.
+         */
+        public double meanBatchSize() {
+            return batches == 0 ? 0 : (double) committed / batches;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("file %d, %d acceptés, %d refusés, %d écrits en %d lots (%.1f par lot), %d échecs, " +
+                            "%d mis de côté, écriture moyenne %.2f ms, max %.2f ms", queueDepth, accepted, rejected,
+                    committed, batches, meanBatchSize(), failures, discarded, meanCommitNanos / 1e6, maxCommitNanos / 1e6);
+        }
+    }
+}
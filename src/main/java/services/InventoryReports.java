@@ -0,0 +1,98 @@
+package services;
+
+import enumerations.AnimalStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import projections.FishEnvironmentCount;
+import projections.ProductTypeStats;
+import projections.StoreAnimalCount;
+import projections.StorePriceStats;
+import projections.StoreProductTypeCount;
+
+import java.util.List;
+
+/**
+ * Rapports d'inventaire calculés par la base de données.
+ * Chaque rapport est une seule requête `group by` qui retourne des projections (records du package `projections`)
+ * et non des entités gérées : aucun animal ni produit n'est chargé en mémoire.
+ */
+public class InventoryReports {
+
+    private final EntityManagerFactory emf;
+
+    /**
+     * Constructeur du service de rapports.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     */
+    public InventoryReports(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    /**
+     * Compte les animaux en magasin ({@link AnimalStatus#AVAILABLE}) de chaque magasin, au total et par espèce.
+     * Les magasins sans animaux sont inclus.
+     *
+     * @return Une ligne par magasin, triée par identifiant de magasin.
+     */
+    public List<StoreAnimalCount> animalsPerStore() {
+        return list("select new projections.StoreAnimalCount(s.id, s.name, count(a), " +
+                "count(case when type(a) = Cat then 1 end), " +
+                "count(case when type(a) = Fish then 1 end)) " +
+                "from PetStore s left join s.animals a on a.status = enumerations.AnimalStatus.AVAILABLE " +
+                "group by s.id, s.name order by s.id", StoreAnimalCount.class);
+    }
+
+    /**
+     * Compte les poissons en magasin par environnement de vie.
+     *
+     * @return Une ligne par environnement de vie représenté.
+     */
+    public List<FishEnvironmentCount> fishPerEnvironment() {
+        return list("select new projections.FishEnvironmentCount(f.linvingEnv, count(f)) " +
+                "from Fish f where f.status = enumerations.AnimalStatus.AVAILABLE " +
+                "group by f.linvingEnv order by f.linvingEnv", FishEnvironmentCount.class);
+    }
+
+    /**
+     * Calcule le nombre de produits et les statistiques de prix de chaque type de produit.
+     *
+     * @return Une ligne par type de produit représenté.
+     */
+    public List<ProductTypeStats> productsPerType() {
+        return list("select new projections.ProductTypeStats(p.prodType, count(p), avg(p.price), min(p.price), max(p.price)) " +
+                "from Product p group by p.prodType order by p.prodType", ProductTypeStats.class);
+    }
+
+    /**
+     * Compte les produits de chaque type au catalogue de chaque magasin.
+     *
+     * @return Une ligne par couple magasin / type de produit représenté.
+     */
+    public List<StoreProductTypeCount> productTypesPerStore() {
+        return list("select new projections.StoreProductTypeCount(s.id, p.prodType, count(p)) " +
+                "from PetStore s join s.products p " +
+                "group by s.id, p.prodType order by s.id, p.prodType", StoreProductTypeCount.class);
+    }
+
+    /**
+     * Calcule le prix moyen et le prix total du catalogue de chaque magasin.
+     * Les magasins sans produits sont inclus.
+     *
+     * @return Une ligne par magasin, triée par identifiant de magasin.
+     */
+    public List<StorePriceStats> pricesPerStore() {
+        return list("select new projections.StorePriceStats(s.id, s.name, count(p), avg(p.price), sum(p.price)) " +
+                "from PetStore s left join s.products p " +
+                "group by s.id, s.name order by s.id", StorePriceStats.class);
+    }
+
+    private <R> List<R> list(String hql, Class<R> resultType) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery(hql, resultType).getResultList();
+        } finally {
+            em.close();
+        }
+    }
+}
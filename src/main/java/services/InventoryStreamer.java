@@ -0,0 +1,169 @@
+package services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lecture en flux de tout l'inventaire (animaux, produits, magasins...) à mémoire constante.
+ *
+ * Les lignes sont lues par un curseur côté serveur (`fetchSize` lignes par aller-retour),
+ * et chaque entité est détachée du contexte de persistance dès qu'elle a été traitée :
+ * la mémoire utilisée ne dépend pas du nombre de lignes.
+ * Conséquence : les associations non chargées d'une entité ne sont accessibles que pendant son traitement.
+ *
+ * Les flux retournés doivent être fermés (try-with-resources) pour libérer la connexion.
+ */
+public class InventoryStreamer {
+
+    /** Nombre de lignes lues par aller-retour par défaut. */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private final EntityManagerFactory emf;
+    private final int fetchSize;
+
+    /**
+     * Constructeur utilisant la taille de lecture par défaut.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     */
+    public InventoryStreamer(EntityManagerFactory emf) {
+        this(emf, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Constructeur avec une taille de lecture spécifique.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @param fetchSize Le nombre de lignes lues par aller-retour avec la base.
+     */
+    public InventoryStreamer(EntityManagerFactory emf, int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("fetchSize doit être strictement positif : " + fetchSize);
+        }
+        this.emf = emf;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Ouvre un flux sur toutes les entités d'un type, triées par identifiant.
+     *
+     * @param entityType Le type d'entité (`Animal.class`, `Product.class`, `PetStore.class`...).
+     * @return Un flux à fermer après usage.
+     */
+    public <T> Stream<T> stream(Class<T> entityType) {
+        String entityName = emf.getMetamodel().entity(entityType).getName();
+        return stream("select e from " + entityName + " e order by e.id", entityType);
+    }
+
+    /**
+     * Ouvre un flux sur le résultat d'une requête HQL quelconque (entités, projections ou valeurs).
+     *
+     * @param hql La requête HQL.
+     * @param resultType Le type de chaque ligne du résultat.
+     * @return Un flux à fermer après usage.
+     */
+    public <R> Stream<R> stream(String hql, Class<R> resultType) {
+        Session session = emf.unwrap(SessionFactory.class).openSession();
+        try {
+            session.setDefaultReadOnly(true);              // Pas d'instantané pour la détection des modifications
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            session.setCacheMode(CacheMode.IGNORE);        // Un parcours complet ne doit pas vider les caches
+            session.beginTransaction();
+            ScrollableResults<R> results = session.createSelectionQuery(hql, resultType)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            RowSpliterator<R> spliterator = new RowSpliterator<>(session, results, isEntity(resultType), fetchSize);
+            return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Parcourt toutes les entités d'un type, triées par identifiant.
+     *
+     * @param entityType Le type d'entité.
+     * @param action Le traitement appliqué à chaque entité.
+     * @return Le nombre d'entités parcourues.
+     */
+    public <T> long forEach(Class<T> entityType, Consumer<? super T> action) {
+        try (Stream<T> stream = stream(entityType)) {
+            long[] count = {0};
+            stream.forEach(entity -> {
+                action.accept(entity);
+                count[0]++;
+            });
+            return count[0];
+        }
+    }
+
+    private boolean isEntity(Class<?> type) {
+        try {
+            emf.getMetamodel().entity(type);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parcours d'un curseur, qui détache chaque entité après son traitement
+     * et nettoie le contexte de persistance (proxys des associations) tous les `clearInterval` éléments.
+     */
+    private static final class RowSpliterator<R> extends Spliterators.AbstractSpliterator<R> {
+
+        private final Session session;
+        private final ScrollableResults<R> results;
+        private final boolean entityRows;
+        private final int clearInterval;
+        private long rows;
+
+        RowSpliterator(Session session, ScrollableResults<R> results, boolean entityRows, int clearInterval) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.session = session;
+            this.results = results;
+            this.entityRows = entityRows;
+            this.clearInterval = clearInterval;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            if (!results.next()) {
+                return false;
+            }
+            R row = results.get();
+            action.accept(row);
+            if (entityRows) {
+                session.detach(row);
+            }
+            if (++rows % clearInterval == 0) {
+                session.clear();
+            }
+            return true;
+        }
+
+        void close() {
+            try {
+                results.close();
+                if (session.getTransaction().isActive()) {
+                    session.getTransaction().rollback();  // Lecture seule : rien à valider
+                }
+            } finally {
+                session.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package services;
+
+import entitys.Adress;
+import entitys.Animal;
+import entitys.Cat;
+import entitys.Fish;
+import entitys.Product;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+/**
+ * Export de tout l'inventaire (adresses, magasins, produits, animaux) au format JSON, en flux.
+ *
+ * Les entités ne sont jamais imbriquées : chaque objet référence les autres par identifiant
+ * (`adressId`, `petStoreId`, couples `[petStoreId, productId]` de `petStoreProducts`),
+ * ce qui évite les cycles du graphe. Les données sont lues avec {@link InventoryStreamer} et écrites
+ * au fil de l'eau : la mémoire utilisée ne dépend pas de la taille de l'inventaire.
+ *
+ * Format produit :
+ * <pre>
+ * {"adresses":[{"id":1,"number":"3B","street":"...","zipCode":"83500","city":"..."}],
+ *  "petStores":[{"id":1,"name":"...","managerName":"...","adressId":1}],
+ *  "products":[{"id":1,"code":"1","label":"eco","type":"ACCESSORY","price":29.99}],
+ *  "petStoreProducts":[[1,1]],
+ *  "animals":[{"id":1,"species":"Fish","birthDate":"...","color":"bleu","petStoreId":1,"livingEnv":"FRESH_WATER"}]}
+ * </pre>
+ */
+public class JsonExporter {
+
+    private final InventoryStreamer streamer;
+
+    /**
+     * Constructeur de l'exporteur.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     */
+    public JsonExporter(EntityManagerFactory emf) {
+        this.streamer = new InventoryStreamer(emf);
+    }
+
+    /**
+     * Écrit tout l'inventaire dans un flux de sortie, encodé en UTF-8.
+     * Le flux de sortie n'est pas fermé.
+     *
+     * @param out Le flux de sortie.
+     * @return Le nombre d'éléments exportés (entités et liens magasin / produit).
+     */
+    public long export(OutputStream out) {
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+            long count = 0;
+            writer.write("{\"adresses\":[");
+            count += writeAll(writer, streamer.stream(Adress.class), this::writeAdress);
+            writer.write("],\"petStores\":[");
+            count += writeAll(writer, streamer.stream(
+                    "select s.id, s.name, s.managerName, s.adress.id from PetStore s order by s.id",
+                    Object[].class), this::writePetStore);
+            writer.write("],\"products\":[");
+            count += writeAll(writer, streamer.stream(Product.class), this::writeProduct);
+            writer.write("],\"petStoreProducts\":[");
+            count += writeAll(writer, streamer.stream(
+                    "select s.id, p.id from PetStore s join s.products p order by s.id",
+                    Object[].class), this::writeLink);
+            writer.write("],\"animals\":[");
+            count += writeAll(writer, streamer.stream(Animal.class), this::writeAnimal);
+            writer.write("]}");
+            writer.flush();
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Écrit les éléments d'un flux, séparés par des virgules, puis ferme le flux.
+     */
+    private static <T> long writeAll(Writer writer, Stream<T> stream, ElementWriter<T> elementWriter) throws IOException {
+        long count = 0;
+        try (stream) {
+            var iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                if (count++ > 0) {
+                    writer.write(',');
+                }
+                elementWriter.write(writer, iterator.next());
+            }
+        }
+        return count;
+    }
+
+    private void writeAdress(Writer w, Adress adress) throws IOException {
+        w.write("{\"id\":");
+        writeValue(w, adress.getId());
+        w.write(",\"number\":");
+        writeString(w, adress.getNumber());
+        w.write(",\"street\":");
+        writeString(w, adress.getStreet());
+        w.write(",\"zipCode\":");
+        writeString(w, adress.getZipCode());
+        w.write(",\"city\":");
+        writeString(w, adress.getCity());
+        w.write('}');
+    }
+
+    private void writePetStore(Writer w, Object[] row) throws IOException {
+        w.write("{\"id\":");
+        writeValue(w, row[0]);
+        w.write(",\"name\":");
+        writeString(w, (String) row[1]);
+        w.write(",\"managerName\":");
+        writeString(w, (String) row[2]);
+        w.write(",\"adressId\":");
+        writeValue(w, row[3]);
+        w.write('}');
+    }
+
+    private void writeProduct(Writer w, Product product) throws IOException {
+        w.write("{\"id\":");
+        w.write(Long.toString(product.getId()));
+        w.write(",\"code\":");
+        writeString(w, product.getCode());
+        w.write(",\"label\":");
+        writeString(w, product.getLabel());
+        w.write(",\"type\":");
+        writeString(w, product.getProdType() == null ? null : product.getProdType().name());
+        w.write(",\"price\":");
+        writeNumber(w, product.getPrice());
+        w.write('}');
+    }
+
+    private void writeLink(Writer w, Object[] row) throws IOException {
+        w.write('[');
+        writeValue(w, row[0]);
+        w.write(',');
+        writeValue(w, row[1]);
+        w.write(']');
+    }
+
+    private void writeAnimal(Writer w, Animal animal) throws IOException {
+        w.write("{\"id\":");
+        writeValue(w, animal.getId());
+        w.write(",\"species\":");
+        writeString(w, animal.getClass().getSimpleName());
+        w.write(",\"birthDate\":");
+        LocalDate birthDate = animal.getbirthDate();
+        writeString(w, birthDate == null ? null : birthDate.toString());
+        w.write(",\"color\":");
+        writeString(w, animal.getColor());
+        w.write(",\"petStoreId\":");
+        writeValue(w, animal.getPetStore() == null ? null : animal.getPetStore().getId());
+        if (animal instanceof Cat cat) {
+            w.write(",\"chipld\":");
+            writeString(w, cat.getChipld());
+        } else if (animal instanceof Fish fish) {
+            w.write(",\"livingEnv\":");
+            writeString(w, fish.getLinvingEnv() == null ? null : fish.getLinvingEnv().name());
+        }
+        w.write('}');
+    }
+
+    /**
+     * Écrit un nombre, ou null.
+     */
+    private static void writeValue(Writer w, Object value) throws IOException {
+        if (value instanceof Double || value instanceof Float) {
+            writeNumber(w, ((Number) value).doubleValue());
+            return;
+        }
+        w.write(value == null ? "null" : value.toString());
+    }
+
+    /**
+     * Écrit un nombre décimal, ou null s'il n'est pas fini : NaN et les infinis n'existent pas en JSON.
+     */
+    private static void writeNumber(Writer w, double value) throws IOException {
+        w.write(Double.isFinite(value) ? Double.toString(value) : "null");
+    }
+
+    /**
+     * Écrit une chaîne JSON entre guillemets, en échappant les caractères spéciaux, ou null.
+     */
+    private static void writeString(Writer w, String value) throws IOException {
+        if (value == null) {
+            w.write("null");
+            return;
+        }
+        w.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                w.write(value, start, i - start);  // Partie sans caractère spécial, écrite d'un bloc
+                switch (c) {
+                    case '"' -> w.write("\\\"");
+                    case '\\' -> w.write("\\\\");
+                    case '\n' -> w.write("\\n");
+                    case '\r' -> w.write("\\r");
+                    case '\t' -> w.write("\\t");
+                    default -> w.write(String.format("\\u%04x", (int) c));
+                }
+                start = i + 1;
+            }
+        }
+        w.write(value, start, value.length() - start);
+        w.write('"');
+    }
+
+    /**
+     * Écriture d'un élément JSON.
+     */
+    @FunctionalInterface
+    private interface ElementWriter<T> {
+        void write(Writer writer, T element) throws IOException;
+    }
+}
@@ -0,0 +1,133 @@
+package services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogramme de latences, en nanosecondes, enregistré sans verrou par plusieurs threads.
+ *
+ * Les valeurs sont rangées dans des seaux log-linéaires : chaque puissance de deux est découpée en
+ * {@value #SUB_BUCKETS} seaux de même largeur, soit une erreur relative d'au plus 1/{@value #SUB_BUCKETS} (environ 3 %)
+ * sur les percentiles, quelle que soit l'échelle (de la microseconde à la minute). Un enregistrement coûte
+ * un calcul d'index et quelques incréments atomiques ; la mémoire est fixe (environ 15 Ko par histogramme).
+ */
+public final class LatencyHistogram {
+
+    /** Nombre de seaux par puissance de deux (doit être une puissance de deux). */
+    static final int SUB_BUCKETS = 32;
+
+    private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+    /** Les valeurs inférieures à `SUB_BUCKETS` ont un seau chacune, puis `SUB_BUCKETS` seaux par puissance de deux. */
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Enregistre une latence.
+     *
+     * @param nanos La latence, en nanosecondes (les valeurs négatives sont comptées comme nulles).
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(index(value));
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Remet l'histogramme à zéro. Les enregistrements concurrents peuvent être comptés avant ou après la remise à zéro.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        max.set(0);
+    }
+
+    /**
+     * Retourne une photographie de l'histogramme : nombre de mesures, moyenne, percentiles et maximum.
+     *
+     * @return La photographie, {@link Snapshot#EMPTY} si aucune latence n'a été enregistrée.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        double sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+            sum += (double) counts[i] * value(i);
+        }
+        if (total == 0) {
+            return Snapshot.EMPTY;
+        }
+        long highest = max.get();
+        return new Snapshot(total, (long) (sum / total),
+                Math.min(percentile(counts, total, 0.50), highest),
+                Math.min(percentile(counts, total, 0.99), highest),
+                Math.min(percentile(counts, total, 0.999), highest),
+                highest);
+    }
+
+    /**
+     * Percentile par la méthode du rang le plus proche, sur des comptes figés.
+     */
+    private static long percentile(long[] counts, long total, double rank) {
+        long target = Math.max(1, (long) Math.ceil(rank * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return value(i);
+            }
+        }
+        return value(counts.length - 1);
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);  // >= SUB_BUCKET_BITS
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Retourne la plus grande valeur rangée dans un seau.
+     */
+    static long value(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Photographie d'un histogramme de latences, en nanosecondes.
+     *
+     * @param count Le nombre de latences enregistrées.
+     * @param mean La latence moyenne.
+     * @param p50 La médiane.
+     * @param p99 Le 99e percentile.
+     * @param p999 Le 99,9e percentile.
+     * @param max La plus grande latence enregistrée.
+     */
+    public record Snapshot(long count, long mean, long p50, long p99, long p999, long max) {
+
+        /** Photographie d'un histogramme vide. */
+        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0);
+
+        @Override
+        public String toString() {
+            return String.format("%d mesures, moyenne %.1f µs, p50 %.1f µs, p99 %.1f µs, p999 %.1f µs, max %.1f µs",
+                    count, mean / 1e3, p50 / 1e3, p99 / 1e3, p999 / 1e3, max / 1e3);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package services;
+
+import entitys.Adress;
+import entitys.PetStore;
+import enumerations.ChangeType;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnitUtil;
+import org.hibernate.Hibernate;
+import projections.StoreLocation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Index des magasins par localisation en mémoire : recherche par code postal, par département (préfixe du code
+ * postal, par exemple "83") ou par ville, qui retourne directement les identifiants des magasins,
+ * sans parcourir la table `adress`.
+ *
+ * Structures :
+ * <ul>
+ *     <li>une table triée (skip list) des clés "code postal, magasin", parcourue par préfixe ;</li>
+ *     <li>une table triée des clés "ville normalisée, magasin" (sans casse, accents ni tirets) ;</li>
+ *     <li>les liens magasin ↔ adresse et la localisation de chaque adresse, pour retirer les anciennes clés.</li>
+ * </ul>
+ *
+ * L'index est chargé une fois depuis la base, puis tenu à jour par des {@link PostCommitListener} à chaque
+ * modification validée d'un magasin ou d'une adresse. Les lectures sont sans verrou ; les écritures,
+ * rares, sont sérialisées. Les modifications en masse (HQL) ne sont pas vues : appeler {@link #reload()} après.
+ * Un index qui n'est plus utilisé doit être fermé ({@link #close()}), pour ne plus recevoir les modifications.
+ */
+public class LocationIndex implements AutoCloseable {
+
+    // Séparateur entre la localisation et l'identifiant dans les clés, inférieur à tout caractère d'un code ou d'une ville
+    private static final char KEY_SEPARATOR = '\0';
+    private static final Pattern CITY_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final EntityManagerFactory emf;
+    private final PersistenceUnitUtil units;
+    private final NavigableSet<String> byZipCode = new ConcurrentSkipListSet<>();
+    private final NavigableSet<String> byCity = new ConcurrentSkipListSet<>();
+    private final Map<Long, Location> adressLocations = new ConcurrentHashMap<>();
+    private final Map<Long, Long> adressByStore = new ConcurrentHashMap<>();
+    private final Map<Long, Long> storeByAdress = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private final StoreUpdater storeUpdater = new StoreUpdater(this);
+    private final AdressUpdater adressUpdater = new AdressUpdater(this);
+
+    // Magasins et adresses modifiés pendant un chargement : les lignes lues par le chargement sont peut-être périmées
+    private Set<Long> storesChangedWhileLoading;
+    private Set<Long> adressesChangedWhileLoading;
+
+    private LocationIndex(EntityManagerFactory emf) {
+        this.emf = emf;
+        this.units = emf.getPersistenceUnitUtil();
+    }
+
+    /**
+     * Construit l'index de tous les magasins et l'abonne aux modifications validées.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @return L'index chargé.
+     */
+    public static LocationIndex build(EntityManagerFactory emf) {
+        LocationIndex index = new LocationIndex(emf);
+        // Avant le chargement : aucune modification ne peut être manquée
+        index.storeUpdater.register(emf);
+        index.adressUpdater.register(emf);
+        try {
+            index.reload();
+        } catch (RuntimeException e) {
+            index.close();
+            throw e;
+        }
+        return index;
+    }
+
+    /**
+     * Désabonne l'index des modifications validées. L'index reste interrogeable, mais n'est plus tenu à jour.
+     */
+    @Override
+    public void close() {
+        storeUpdater.unregister();
+        adressUpdater.unregister();
+    }
+
+    /**
+     * Recharge tout l'index depuis la base, par exemple après une modification en masse des adresses.
+     * L'index reste interrogeable pendant le chargement.
+     */
+    public void reload() {
+        synchronized (writeLock) {
+            storesChangedWhileLoading = new LinkedHashSet<>();
+            adressesChangedWhileLoading = new LinkedHashSet<>();
+        }
+        try (Stream<StoreLocation> locations = new InventoryStreamer(emf).stream(
+                "select new projections.StoreLocation(s.id, a.id, a.zipCode, a.city) " +
+                        "from PetStore s left join s.adress a", StoreLocation.class)) {
+            Set<Long> loaded = new LinkedHashSet<>();
+            locations.forEach(location -> {
+                synchronized (writeLock) {
+                    if (location.adressId() != null && !adressesChangedWhileLoading.contains(location.adressId())) {
+                        putAdress(location.adressId(), location.zipCode(), location.city());
+                    }
+                    if (!storesChangedWhileLoading.contains(location.petStoreId())) {
+                        putStore(location.petStoreId(), location.adressId());
+                    }
+                }
+                loaded.add(location.petStoreId());
+            });
+            synchronized (writeLock) {
+                for (Long id : List.copyOf(adressByStore.keySet())) {
+                    if (!loaded.contains(id) && !storesChangedWhileLoading.contains(id)) {
+                        removeStore(id);  // Supprimé en base depuis le chargement précédent
+                    }
+                }
+            }
+        } finally {
+            synchronized (writeLock) {
+                storesChangedWhileLoading = null;
+                adressesChangedWhileLoading = null;
+            }
+        }
+    }
+
+    /**
+     * Recherche les magasins dont le code postal commence par un préfixe : un département ("83"),
+     * ou un code postal complet ("83500").
+     *
+     * @param prefix Le début du code postal.
+     * @return Les identifiants des magasins, dans l'ordre des codes postaux.
+     */
+    public List<Long> findByZipCodePrefix(String prefix) {
+        return prefix == null ? List.of() : find(byZipCode, prefix.strip(), true);
+    }
+
+    /**
+     * Recherche les magasins d'une ville. La recherche ignore la casse, les accents et la ponctuation :
+     * "la seyne sur mer" trouve "La Seyne-sur-Mer".
+     *
+     * @param city Le nom de la ville.
+     * @return Les identifiants des magasins de la ville.
+     */
+    public List<Long> findByCity(String city) {
+        return city == null ? List.of() : find(byCity, normalizeCity(city), false);
+    }
+
+    /**
+     * Recherche les magasins des villes dont le nom commence par un préfixe (complétion), avec la même
+     * normalisation que {@link #findByCity(String)} : "saint" trouve "Saint-Tropez" et "Saint-Raphaël".
+     *
+     * @param prefix Le début du nom de ville.
+     * @return Les identifiants des magasins, dans l'ordre alphabétique des villes.
+     */
+    public List<Long> findByCityPrefix(String prefix) {
+        return prefix == null ? List.of() : find(byCity, normalizeCity(prefix), true);
+    }
+
+    /**
+     * @return Le nombre de magasins indexés (avec ou sans adresse).
+     */
+    public int size() {
+        return adressByStore.size();
+    }
+
+    /**
+     * Identifiants des magasins dont la clé commence par une localisation, ou lui est égale.
+     */
+    private static List<Long> find(NavigableSet<String> keys, String location, boolean prefix) {
+        if (location.isEmpty()) {
+            return List.of();
+        }
+        // Préfixe : [localisation, localisation + plus grand caractère) ;
+        // égalité : [localisation + séparateur, localisation + caractère suivant le séparateur)
+        String to = location + (prefix ? Character.MAX_VALUE : (char) (KEY_SEPARATOR + 1));
+        List<Long> ids = new ArrayList<>();
+        for (String key : keys.subSet(location, true, to, false)) {
+            ids.add(Long.parseLong(key, key.indexOf(KEY_SEPARATOR) + 1, key.length(), 10));
+        }
+        return ids;
+    }
+
+    /**
+     * Applique une modification validée d'un magasin.
+     */
+    void applyStore(ChangeType type, long id, PetStore store) {
+        synchronized (writeLock) {
+            if (storesChangedWhileLoading != null) {
+                storesChangedWhileLoading.add(id);
+            }
+            if (type == ChangeType.DELETE) {
+                removeStore(id);
+                return;
+            }
+            Adress adress = store.getAdress();
+            Long adressId = adress == null ? null : (Long) units.getIdentifier(adress);
+            if (adressId != null && Hibernate.isInitialized(adress)) {
+                if (adressesChangedWhileLoading != null) {
+                    adressesChangedWhileLoading.add(adressId);
+                }
+                putAdress(adressId, adress.getZipCode(), adress.getCity());
+            }
+            putStore(id, adressId);
+        }
+    }
+
+    /**
+     * Applique une modification validée d'une adresse.
+     */
+    void applyAdress(ChangeType type, long id, Adress adress) {
+        synchronized (writeLock) {
+            if (adressesChangedWhileLoading != null) {
+                adressesChangedWhileLoading.add(id);
+            }
+            if (type == ChangeType.DELETE) {
+                removeAdress(id);
+            } else {
+                putAdress(id, adress.getZipCode(), adress.getCity());
+            }
+        }
+    }
+
+    // Appelé avec writeLock
+    private void putStore(long storeId, Long adressId) {
+        removeStore(storeId);
+        adressByStore.put(storeId, adressId == null ? 0L : adressId);  // 0 : magasin sans adresse
+        if (adressId != null) {
+            storeByAdress.put(adressId, storeId);
+            index(storeId, adressLocations.get(adressId));
+        }
+    }
+
+    // Appelé avec writeLock
+    private void removeStore(long storeId) {
+        Long adressId = adressByStore.remove(storeId);
+        if (adressId == null) {
+            return;
+        }
+        storeByAdress.remove(adressId, storeId);
+        unindex(storeId, adressLocations.get(adressId));
+    }
+
+    // Appelé avec writeLock
+    private void putAdress(long adressId, String zipCode, String city) {
+        Location location = new Location(zipCode == null ? null : zipCode.strip(),
+                city == null ? null : normalizeCity(city));
+        Location previous = adressLocations.put(adressId, location);
+        Long storeId = storeByAdress.get(adressId);
+        if (storeId != null) {
+            unindex(storeId, previous);
+            index(storeId, location);
+        }
+    }
+
+    // Appelé avec writeLock
+    private void removeAdress(long adressId) {
+        Location previous = adressLocations.remove(adressId);
+        Long storeId = storeByAdress.remove(adressId);
+        if (storeId != null) {
+            unindex(storeId, previous);
+            adressByStore.put(storeId, 0L);
+        }
+    }
+
+    // Appelé avec writeLock
+    private void index(long storeId, Location location) {
+        if (location != null) {
+            if (location.zipCode() != null && !location.zipCode().isEmpty()) {
+                byZipCode.add(key(location.zipCode(), storeId));
+            }
+            if (location.city() != null && !location.city().isEmpty()) {
+                byCity.add(key(location.city(), storeId));
+            }
+        }
+    }
+
+    // Appelé avec writeLock
+    private void unindex(long storeId, Location location) {
+        if (location != null) {
+            if (location.zipCode() != null) {
+                byZipCode.remove(key(location.zipCode(), storeId));
+            }
+            if (location.city() != null) {
+                byCity.remove(key(location.city(), storeId));
+            }
+        }
+    }
+
+    private static String key(String location, long storeId) {
+        return location + KEY_SEPARATOR + storeId;
+    }
+
+    /**
+     * Met un nom de ville en minuscules, sans accents, et remplace tirets et apostrophes par des espaces.
+     */
+    static String normalizeCity(String city) {
+        return CITY_SEPARATORS.matcher(ProductSearchIndex.normalize(city)).replaceAll(" ").strip();
+    }
+
+    /**
+     * Localisation d'une adresse : code postal et ville normalisée.
+     */
+    private record Location(String zipCode, String city) {
+    }
+
+    /**
+     * Écouteur qui reporte dans l'index les créations, modifications et suppressions de magasins validées.
+     */
+    private static final class StoreUpdater extends PostCommitListener<PetStore> {
+
+        private final LocationIndex index;
+
+        StoreUpdater(LocationIndex index) {
+            super(PetStore.class);
+            this.index = index;
+        }
+
+        @Override
+        protected void onCommit(ChangeType type, Object id, PetStore store) {
+            index.applyStore(type, (Long) id, store);
+        }
+    }
+
+    /**
+     * Écouteur qui reporte dans l'index les modifications d'adresses validées.
+     */
+    private static final class AdressUpdater extends PostCommitListener<Adress> {
+
+        private final LocationIndex index;
+
+        AdressUpdater(LocationIndex index) {
+            super(Adress.class);
+            this.index = index;
+        }
+
+        @Override
+        protected void onCommit(ChangeType type, Object id, Adress adress) {
+            index.applyAdress(type, (Long) id, adress);
+        }
+    }
+}
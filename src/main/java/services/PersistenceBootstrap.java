@@ -0,0 +1,154 @@
+package services;
+
+import enumerations.MigrationMode;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.registry.classloading.spi.ClassLoaderService;
+import org.hibernate.cfg.JdbcSettings;
+import org.hibernate.jpa.HibernatePersistenceProvider;
+import org.hibernate.jpa.boot.spi.EntityManagerFactoryBuilder;
+import org.hibernate.jpa.boot.spi.PersistenceUnitDescriptor;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Démarrage d'une unité de persistance, avec vérification du schéma par les migrations versionnées.
+ *
+ * Les migrations sont les scripts `V<n>__<description>.sql` de `db/migration`, appliqués dans l'ordre par Flyway,
+ * qui en garde l'historique (et les sommes de contrôle) dans la table `flyway_schema_history`.
+ * Le mode est lu dans la propriété {@value #MIGRATION_MODE} de l'unité (voir {@link MigrationMode}) ;
+ * les unités qui génèrent leur schéma (`drop-and-create`) ne la définissent pas, et ne sont pas vérifiées.
+ * Les migrations sont vérifiées ou appliquées avant la construction de la fabrique d'EntityManager, sur une connexion
+ * ouverte avec les paramètres JDBC de l'unité (lus par Hibernate dans `persistence.xml`, qui n'est analysé qu'une
+ * fois) : Hibernate démarre toujours sur un schéma à jour.
+ * Avec {@value #VALIDATE_MAPPING} à `true`, Hibernate vérifie ensuite que le mapping des entités correspond
+ * au schéma (tables, colonnes et types), ce que le mode {@link MigrationMode#VALIDATE} seul ne fait pas.
+ *
+ * La configuration Hibernate commune à toutes les unités (pool, caches, instrumentation) est celle de
+ * {@link PersistenceDefaults}, sous les propriétés de l'unité et celles passées à {@link #start(String, Map)}.
+ */
+public final class PersistenceBootstrap {
+
+    /** Propriété de l'unité de persistance qui fixe le mode de migration. */
+    public static final String MIGRATION_MODE = "tppetstore.schema.migration";
+
+    /** Propriété de l'unité de persistance qui demande la vérification du mapping par rapport au schéma. */
+    public static final String VALIDATE_MAPPING = "tppetstore.schema.validate-mapping";
+
+    /** Emplacement des migrations dans le classpath. */
+    public static final String MIGRATION_LOCATION = "classpath:db/migration";
+
+    private PersistenceBootstrap() {
+    }
+
+    /**
+     * Démarre une unité de persistance avec sa configuration.
+     *
+     * @param unit Le nom de l'unité de persistance.
+     * @return La fabrique d'EntityManager, prête à l'emploi.
+     */
+    public static EntityManagerFactory start(String unit) {
+        return start(unit, Map.of());
+    }
+
+    /**
+     * Vérifie ou migre le schéma d'une unité de persistance selon {@value #MIGRATION_MODE}, puis la démarre
+     * et, si {@value #VALIDATE_MAPPING} le demande, vérifie son mapping.
+     *
+     * @param unit Le nom de l'unité de persistance.
+     * @param properties Les propriétés qui remplacent celles de l'unité (connexion, mode de migration...).
+     * @return La fabrique d'EntityManager, prête à l'emploi.
+     * @throws org.flywaydb.core.api.FlywayException si le schéma ne correspond pas aux migrations.
+     * @throws org.hibernate.tool.schema.spi.SchemaManagementException si le mapping ne correspond pas au schéma.
+     */
+    public static EntityManagerFactory start(String unit, Map<String, ?> properties) {
+        MigratingPersistenceProvider provider = new MigratingPersistenceProvider();
+        EntityManagerFactory emf = provider.createEntityManagerFactory(unit, properties);
+        if (emf == null) {
+            throw new IllegalArgumentException("Unité de persistance inconnue : " + unit);
+        }
+        if (provider.validateMapping) {
+            try {
+                emf.unwrap(SessionFactory.class).getSchemaManager().validateMappedObjects();
+            } catch (RuntimeException e) {
+                emf.close();
+                throw e;
+            }
+        }
+        return emf;
+    }
+
+    /**
+     * Vérifie ou migre le schéma d'une base, sur une connexion ouverte avec les paramètres JDBC
+     * d'une unité de persistance ({@value JdbcSettings#JAKARTA_JDBC_URL}, `user` et `password`).
+     *
+     * En mode {@link MigrationMode#MIGRATE}, une base vide reçoit toutes les migrations. Une base qui n'est pas vide
+     * mais n'a pas d'historique (créée par `hbm2ddl` ou par une version antérieure de l'application) est refusée :
+     * son schéma est inconnu, et aucune migration ne peut lui être appliquée sans risque. Une fois son schéma converti
+     * et vérifié, son historique est initialisé explicitement (`flyway baseline`, à la version atteinte).
+     *
+     * @param properties Les propriétés de l'unité de persistance.
+     * @param mode Le mode de migration.
+     * @return Le nombre de migrations appliquées.
+     * @throws org.flywaydb.core.api.FlywayException si le schéma ne correspond pas aux migrations, ou si la base
+     *         n'est pas vide mais n'a pas d'historique.
+     */
+    public static int migrate(Map<String, ?> properties, MigrationMode mode) {
+        if (mode == MigrationMode.NONE) {
+            return 0;
+        }
+        Object url = properties.get(JdbcSettings.JAKARTA_JDBC_URL);
+        if (url == null) {
+            throw new IllegalStateException("Migrations impossibles : " + JdbcSettings.JAKARTA_JDBC_URL + " non défini");
+        }
+        Flyway flyway = Flyway.configure()
+                .dataSource(url.toString(), Objects.toString(properties.get(JdbcSettings.JAKARTA_JDBC_USER), null),
+                        Objects.toString(properties.get(JdbcSettings.JAKARTA_JDBC_PASSWORD), null))
+                .locations(MIGRATION_LOCATION)
+                .load();
+        if (mode == MigrationMode.VALIDATE) {
+            flyway.validate();
+            return 0;
+        }
+        return flyway.migrate().migrationsExecuted;
+    }
+
+    /**
+     * Fournisseur Hibernate qui vérifie ou migre le schéma d'une unité juste avant la construction de sa fabrique,
+     * avec les propriétés de l'unité lues par Hibernate et celles de l'appelant.
+     */
+    private static final class MigratingPersistenceProvider extends HibernatePersistenceProvider {
+
+        private boolean validateMapping;
+
+        @Override
+        protected EntityManagerFactoryBuilder getEntityManagerFactoryBuilder(PersistenceUnitDescriptor persistenceUnit,
+                                                                             Map<?, ?> integration,
+                                                                             ClassLoader providedClassLoader) {
+            prepare(persistenceUnit, integration);
+            return super.getEntityManagerFactoryBuilder(persistenceUnit, integration, providedClassLoader);
+        }
+
+        @Override
+        protected EntityManagerFactoryBuilder getEntityManagerFactoryBuilder(PersistenceUnitDescriptor persistenceUnit,
+                                                                             Map<?, ?> integration,
+                                                                             ClassLoaderService providedClassLoaderService) {
+            prepare(persistenceUnit, integration);
+            return super.getEntityManagerFactoryBuilder(persistenceUnit, integration, providedClassLoaderService);
+        }
+
+        private void prepare(PersistenceUnitDescriptor persistenceUnit, Map<?, ?> integration) {
+            Map<String, Object> effective = new HashMap<>();
+            persistenceUnit.getProperties().forEach((name, value) -> effective.put(name.toString(), value));
+            integration.forEach((name, value) -> effective.put(name.toString(), value));
+            Object mode = effective.get(MIGRATION_MODE);
+            migrate(effective, mode == null ? MigrationMode.NONE
+                    : MigrationMode.valueOf(mode.toString().trim().toUpperCase(Locale.ROOT)));
+            validateMapping = Boolean.parseBoolean(String.valueOf(effective.get(VALIDATE_MAPPING)));
+        }
+    }
+}
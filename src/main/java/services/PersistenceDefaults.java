@@ -0,0 +1,62 @@
+package services;
+
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.service.spi.ServiceContributor;
+
+import java.util.Map;
+
+/**
+ * Configuration Hibernate par défaut de toutes les unités de persistance : pool HikariCP, caches, instrumentation
+ * et batching JDBC.
+ *
+ * Chaque valeur ne s'applique que si ni l'unité (`persistence.xml`) ni l'appelant (propriétés passées à
+ * `Persistence.createEntityManagerFactory`) ne la définissent : une unité peut par exemple régler son pool
+ * (`hibernate.hikari.*`) ou sa taille de lot. Le contributeur est déclaré dans
+ * `META-INF/services/org.hibernate.service.spi.ServiceContributor` : il s'applique à toutes les unités, qu'elles
+ * soient démarrées par {@link PersistenceBootstrap} ou directement par `Persistence.createEntityManagerFactory`.
+ */
+public class PersistenceDefaults implements ServiceContributor {
+
+    /** Valeurs par défaut, par nom de propriété. */
+    public static final Map<String, String> SETTINGS = Map.ofEntries(
+            // Pool de connexions HikariCP (cache des requêtes préparées configuré dans l'URL JDBC)
+            Map.entry("hibernate.connection.provider_class", PooledConnectionProvider.class.getName()),
+            Map.entry("hibernate.connection.provider_disables_autocommit", "true"),
+            Map.entry("hibernate.hikari.minimumIdle", "4"),
+            Map.entry("hibernate.hikari.connectionTimeout", "5000"),
+            Map.entry("hibernate.hikari.idleTimeout", "300000"),
+            Map.entry("hibernate.hikari.maxLifetime", "1800000"),
+            Map.entry("hibernate.hikari.leakDetectionThreshold", "10000"),
+            Map.entry("hibernate.hikari.registerMbeans", "true"),
+            // Cache de second niveau et cache de requêtes (Ehcache via JCache, régions dans ehcache.xml)
+            Map.entry("hibernate.cache.use_second_level_cache", "true"),
+            Map.entry("hibernate.cache.use_query_cache", "true"),
+            Map.entry("hibernate.cache.region.factory_class", "jcache"),
+            Map.entry("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider"),
+            Map.entry("hibernate.javax.cache.uri", "ehcache.xml"),
+            Map.entry("hibernate.javax.cache.missing_cache_strategy", "fail"),
+            // Instrumentation : statistiques Hibernate, histogrammes de latences et événements JFR (PersistenceMetrics).
+            // Les requêtes SQL ne sont pas écrites sur la sortie standard : activer le logger org.hibernate.SQL (DEBUG)
+            Map.entry("hibernate.generate_statistics", "true"),
+            Map.entry("hibernate.session.events.log", "false"),
+            Map.entry("hibernate.session_factory.session_scoped_interceptor", PersistenceInterceptor.class.getName()),
+            Map.entry("hibernate.show_sql", "false"),
+            Map.entry("hibernate.format_sql", "false"),
+            // Batching JDBC : possible car les identifiants sont alloués par séquences "pooled"
+            Map.entry("hibernate.jdbc.batch_size", "50"),
+            Map.entry("hibernate.order_inserts", "true"),
+            Map.entry("hibernate.order_updates", "true"),
+            Map.entry("hibernate.jdbc.batch_versioned_data", "true"),
+            Map.entry("hibernate.query.in_clause_parameter_padding", "true"));
+
+    @Override
+    public void contribute(StandardServiceRegistryBuilder serviceRegistryBuilder) {
+        // Appelé à la construction du registre, une fois fusionnées les propriétés de l'unité et celles de l'appelant
+        Map<String, Object> settings = serviceRegistryBuilder.getSettings();
+        SETTINGS.forEach((name, value) -> {
+            if (!settings.containsKey(name)) {
+                serviceRegistryBuilder.applySetting(name, value);
+            }
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package services;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Événements JFR (Java Flight Recorder) émis par la couche de persistance.
+ *
+ * Ils ne coûtent presque rien hors enregistrement, et sont enregistrés au-delà d'un seuil de 1 ms, sans pile d'appels.
+ * Pour tout enregistrer, démarrer la JVM avec par exemple
+ * `-XX:StartFlightRecording=filename=petstore.jfr,settings=profile` et fixer le seuil à 0 ms dans les réglages
+ * (`tppetstore.Query#threshold=0 ms`).
+ */
+public final class PersistenceEvents {
+
+    private PersistenceEvents() {
+    }
+
+    /**
+     * Une opération d'un dépôt ou d'un service (lecture d'un magasin, d'une page d'animaux...).
+     */
+    @Name("tppetstore.Query")
+    @Label("Requête")
+    @Category({"TpPetstore", "Persistance"})
+    @Description("Opération de lecture d'un dépôt ou d'un service, avec le nombre de lignes retournées")
+    @StackTrace(false)
+    @Threshold("1 ms")
+    public static final class QueryEvent extends Event {
+
+        @Label("Entité")
+        String entity;
+
+        @Label("Opération")
+        String operation;
+
+        @Label("Lignes")
+        int rows;
+    }
+
+    /**
+     * Un flush du contexte de persistance.
+     */
+    @Name("tppetstore.Flush")
+    @Label("Flush")
+    @Category({"TpPetstore", "Persistance"})
+    @Description("Flush du contexte de persistance, avec le nombre d'entités gérées et leurs types")
+    @StackTrace(false)
+    @Threshold("1 ms")
+    public static final class FlushEvent extends Event {
+
+        @Label("Entités")
+        @Description("Nombre d'entités dans le contexte de persistance")
+        int entities;
+
+        @Label("Types d'entités")
+        String entityTypes;
+    }
+
+    /**
+     * Une transaction, de son début à la fin de son commit ou de son rollback.
+     */
+    @Name("tppetstore.Transaction")
+    @Label("Transaction")
+    @Category({"TpPetstore", "Persistance"})
+    @Description("Transaction, avec le nombre d'entités insérées, modifiées et supprimées et leurs types")
+    @StackTrace(false)
+    @Threshold("1 ms")
+    public static final class TransactionEvent extends Event {
+
+        @Label("Validée")
+        boolean committed;
+
+        @Label("Insertions")
+        int inserts;
+
+        @Label("Mises à jour")
+        int updates;
+
+        @Label("Suppressions")
+        int deletes;
+
+        @Label("Types d'entités")
+        String entityTypes;
+    }
+}
@@ -0,0 +1,125 @@
+package services;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Interceptor;
+import org.hibernate.Transaction;
+import org.hibernate.resource.transaction.spi.TransactionStatus;
+import org.hibernate.type.Type;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Intercepteur qui mesure les flushs et les transactions de chaque session : leur durée alimente les histogrammes
+ * {@value PersistenceMetrics#FLUSH} et {@value PersistenceMetrics#TRANSACTION} de {@link PersistenceMetrics},
+ * et chacun émet un événement JFR ({@link PersistenceEvents.FlushEvent}, {@link PersistenceEvents.TransactionEvent}).
+ *
+ * Il est activé pour toutes les unités via la propriété `hibernate.session_factory.session_scoped_interceptor`
+ * (voir `PersistenceDefaults`) : Hibernate crée une instance par session, qui n'est donc jamais
+ * partagée entre threads.
+ * Les types des entités ne sont relevés que pendant un enregistrement JFR.
+ */
+public class PersistenceInterceptor implements Interceptor {
+
+    private static final LatencyHistogram FLUSH_LATENCY = PersistenceMetrics.histogram(PersistenceMetrics.FLUSH);
+    private static final LatencyHistogram TRANSACTION_LATENCY =
+            PersistenceMetrics.histogram(PersistenceMetrics.TRANSACTION);
+
+    private PersistenceEvents.TransactionEvent transaction;
+    private long transactionStart;
+    private int inserts;
+    private int updates;
+    private int deletes;
+
+    /** Types des entités écrites par la transaction, null hors enregistrement JFR. */
+    private Set<String> transactionTypes;
+
+    private PersistenceEvents.FlushEvent flush;
+    private long flushStart;
+
+    @Override
+    public void afterTransactionBegin(Transaction tx) {
+        transaction = new PersistenceEvents.TransactionEvent();
+        transaction.begin();
+        transactionStart = System.nanoTime();
+        inserts = 0;
+        updates = 0;
+        deletes = 0;
+        transactionTypes = transaction.isEnabled() ? new TreeSet<>() : null;
+    }
+
+    @Override
+    public void afterTransactionCompletion(Transaction tx) {
+        if (transaction == null) {
+            return;
+        }
+        TRANSACTION_LATENCY.record(System.nanoTime() - transactionStart);
+        transaction.end();
+        if (transaction.shouldCommit()) {
+            transaction.committed = tx.getStatus() == TransactionStatus.COMMITTED;
+            transaction.inserts = inserts;
+            transaction.updates = updates;
+            transaction.deletes = deletes;
+            transaction.entityTypes = transactionTypes == null ? null : String.join(", ", transactionTypes);
+            transaction.commit();
+        }
+        transaction = null;
+        transactionTypes = null;
+    }
+
+    @Override
+    public boolean onPersist(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        inserts++;
+        written(entity);
+        return false;
+    }
+
+    @Override
+    public boolean onFlushDirty(Object entity, Object id, Object[] currentState, Object[] previousState,
+                                String[] propertyNames, Type[] types) {
+        updates++;
+        written(entity);
+        return false;
+    }
+
+    @Override
+    public void onRemove(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        deletes++;
+        written(entity);
+    }
+
+    @Override
+    public void preFlush(Iterator<Object> entities) {
+        flush = new PersistenceEvents.FlushEvent();
+        flush.begin();
+        flushStart = System.nanoTime();
+    }
+
+    @Override
+    public void postFlush(Iterator<Object> entities) {
+        if (flush == null) {
+            return;
+        }
+        FLUSH_LATENCY.record(System.nanoTime() - flushStart);
+        flush.end();
+        if (flush.shouldCommit()) {
+            int count = 0;
+            Set<String> types = new TreeSet<>();
+            while (entities.hasNext()) {
+                types.add(Hibernate.getClass(entities.next()).getSimpleName());
+                count++;
+            }
+            flush.entities = count;
+            flush.entityTypes = String.join(", ", types);
+            flush.commit();
+        }
+        flush = null;
+    }
+
+    private void written(Object entity) {
+        if (transactionTypes != null) {
+            transactionTypes.add(Hibernate.getClass(entity).getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Instrumentation des chemins critiques de la persistance : histogrammes de latences par opération,
+ * événements JFR ({@link PersistenceEvents}) et statistiques Hibernate.
+ *
+ * Les histogrammes sont communs à toute la JVM (toutes les unités de persistance, tous les shards).
+ * Les opérations des dépôts sont déclarées une fois, en constantes, puis mesurées sans recherche dans une table :
+ * <pre>
+ * private static final PersistenceMetrics.Operation FIND = PersistenceMetrics.operation("PetStore", "findById");
+ * ...
+ * return FIND.measure(() -> ...);
+ * </pre>
+ * Les flushs et les transactions sont mesurés par {@link PersistenceInterceptor}, sous les noms {@value #FLUSH}
+ * et {@value #TRANSACTION}.
+ */
+public final class PersistenceMetrics {
+
+    /** Nom de l'histogramme des flushs. */
+    public static final String FLUSH = "flush";
+
+    /** Nom de l'histogramme des transactions. */
+    public static final String TRANSACTION = "transaction";
+
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private PersistenceMetrics() {
+    }
+
+    /**
+     * Déclare une opération mesurée.
+     *
+     * @param entity Le nom de l'entité concernée (par exemple "PetStore").
+     * @param operation Le nom de l'opération (par exemple "findById").
+     * @return L'opération, dont l'histogramme est nommé `entity.operation`.
+     */
+    public static Operation operation(String entity, String operation) {
+        return new Operation(entity, operation, histogram(entity + "." + operation));
+    }
+
+    /**
+     * Retourne un histogramme de latences, créé au premier appel.
+     *
+     * @param name Le nom de l'histogramme.
+     * @return L'histogramme.
+     */
+    public static LatencyHistogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Retourne une photographie de tous les histogrammes qui ont au moins une mesure.
+     *
+     * @return Les latences par nom d'histogramme, triées par nom.
+     */
+    public static Map<String, LatencyHistogram.Snapshot> latencies() {
+        Map<String, LatencyHistogram.Snapshot> latencies = new TreeMap<>();
+        HISTOGRAMS.forEach((name, histogram) -> {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            if (snapshot.count() > 0) {
+                latencies.put(name, snapshot);
+            }
+        });
+        return latencies;
+    }
+
+    /**
+     * Remet à zéro tous les histogrammes, par exemple au début d'une période d'observation.
+     */
+    public static void reset() {
+        HISTOGRAMS.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * Retourne une photographie des statistiques Hibernate d'une unité de persistance.
+     * Elles ne sont alimentées que si `hibernate.generate_statistics` est activé.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @return Les statistiques cumulées depuis le démarrage de l'unité.
+     */
+    public static HibernateStatistics statistics(EntityManagerFactory emf) {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        long hits = statistics.getSecondLevelCacheHitCount();
+        long misses = statistics.getSecondLevelCacheMissCount();
+        return new HibernateStatistics(statistics.isStatisticsEnabled(),
+                statistics.getSessionOpenCount(),
+                statistics.getTransactionCount(),
+                statistics.getSuccessfulTransactionCount(),
+                statistics.getFlushCount(),
+                statistics.getPrepareStatementCount(),
+                statistics.getQueryExecutionCount(),
+                statistics.getQueryExecutionMaxTime(),
+                statistics.getQueryExecutionMaxTimeQueryString(),
+                statistics.getEntityLoadCount(),
+                statistics.getEntityFetchCount(),
+                statistics.getEntityInsertCount(),
+                statistics.getEntityUpdateCount(),
+                statistics.getEntityDeleteCount(),
+                hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+    }
+
+    /**
+     * Nombre de lignes d'un résultat : taille d'une collection, 0 ou 1 pour un résultat optionnel.
+     */
+    static int rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return 1;
+    }
+
+    /**
+     * Une opération mesurée : chaque exécution alimente son histogramme et émet un événement JFR
+     * {@link PersistenceEvents.QueryEvent}. Les exécutions en échec ne sont pas mesurées.
+     *
+     * @param entity Le nom de l'entité concernée.
+     * @param operation Le nom de l'opération.
+     * @param histogram L'histogramme des latences de l'opération.
+     */
+    public record Operation(String entity, String operation, LatencyHistogram histogram) {
+
+        /**
+         * Exécute et mesure l'opération.
+         *
+         * @param query Le corps de l'opération.
+         * @return Le résultat de l'opération.
+         */
+        public <R> R measure(Supplier<R> query) {
+            PersistenceEvents.QueryEvent event = new PersistenceEvents.QueryEvent();
+            event.begin();
+            long start = System.nanoTime();
+            R result = query.get();
+            histogram.record(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.entity = entity;
+                event.operation = operation;
+                event.rows = rows(result);
+                event.commit();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Photographie des statistiques Hibernate d'une unité de persistance.
+     *
+     * @param enabled true si les statistiques sont activées.
+     * @param sessions Le nombre de sessions ouvertes.
+     * @param transactions Le nombre de transactions terminées.
+     * @param successfulTransactions Le nombre de transactions validées.
+     * @param flushes Le nombre de flushs.
+     * @param statements Le nombre de requêtes JDBC préparées.
+     * @param queries Le nombre de requêtes HQL exécutées.
+     * @param maxQueryMillis La durée de la requête HQL la plus lente, en millisecondes.
+     * @param slowestQuery La requête HQL la plus lente.
+     * @param entityLoads Le nombre d'entités chargées.
+     * @param entityFetches Le nombre d'entités chargées par une requête supplémentaire (chargement différé).
+     * @param entityInserts Le nombre d'entités insérées.
+     * @param entityUpdates Le nombre d'entités mises à jour.
+     * @param entityDeletes Le nombre d'entités supprimées.
+     * @param cacheHitRatio La part des lectures du cache de second niveau trouvées en cache.
+     */
+    public record HibernateStatistics(boolean enabled, long sessions, long transactions, long successfulTransactions,
+                                      long flushes, long statements, long queries, long maxQueryMillis,
+                                      String slowestQuery, long entityLoads, long entityFetches, long entityInserts,
+                                      long entityUpdates, long entityDeletes, double cacheHitRatio) {
+    }
+}
@@ -0,0 +1,133 @@
+package services;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.JdbcSettings;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fournisseur de connexions JDBC pour Hibernate, basé sur un pool HikariCP.
+ * Il est activé pour toutes les unités de persistance via la propriété `hibernate.connection.provider_class`
+ * (voir `PersistenceDefaults`).
+ *
+ * La connexion à la base est lue dans les propriétés `jakarta.persistence.jdbc.*` de l'unité de persistance,
+ * et toutes les propriétés préfixées par `hibernate.hikari.` sont transmises au pool
+ * (par exemple `hibernate.hikari.maximumPoolSize` ou `hibernate.hikari.leakDetectionThreshold`).
+ */
+public class PooledConnectionProvider implements ConnectionProvider, Configurable, Stoppable {
+
+    /** Préfixe des propriétés de l'unité de persistance transmises à HikariCP. */
+    public static final String HIKARI_PREFIX = "hibernate.hikari.";
+
+    /** Compteur utilisé pour nommer les pools lorsque plusieurs unités de persistance coexistent. */
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final ConnectionPoolMetrics metrics = new ConnectionPoolMetrics();
+
+    private HikariDataSource dataSource;
+
+    /**
+     * Calcule la taille maximale par défaut du pool.
+     * Formule classique : deux connexions par cœur plus une, un pool plus grand
+     * ne fait qu'augmenter la contention côté base de données.
+     *
+     * @return La taille maximale du pool si elle n'est pas configurée.
+     */
+    static int defaultMaximumPoolSize() {
+        return Runtime.getRuntime().availableProcessors() * 2 + 1;
+    }
+
+    @Override
+    public void configure(Map<String, Object> configurationValues) {
+        Properties properties = new Properties();
+        configurationValues.forEach((key, value) -> {
+            if (key.startsWith(HIKARI_PREFIX) && value != null) {
+                properties.setProperty(key.substring(HIKARI_PREFIX.length()), value.toString());
+            }
+        });
+
+        HikariConfig config = new HikariConfig(properties);
+        config.setJdbcUrl(setting(configurationValues, JdbcSettings.JAKARTA_JDBC_URL));
+        config.setUsername(setting(configurationValues, JdbcSettings.JAKARTA_JDBC_USER));
+        config.setPassword(setting(configurationValues, JdbcSettings.JAKARTA_JDBC_PASSWORD));
+        String driver = setting(configurationValues, JdbcSettings.JAKARTA_JDBC_DRIVER);
+        if (driver != null) {
+            config.setDriverClassName(driver);
+        }
+        if (!properties.containsKey("maximumPoolSize")) {
+            config.setMaximumPoolSize(defaultMaximumPoolSize());
+        }
+        if (config.getPoolName() == null) {
+            config.setPoolName("TpPetstore-pool-" + POOL_COUNTER.incrementAndGet());
+        }
+        // Hibernate gère lui-même les transactions : les connexions sortent du pool sans autocommit
+        config.setAutoCommit(false);
+        config.setMetricsTrackerFactory(metrics);
+
+        dataSource = new HikariDataSource(config);
+    }
+
+    /**
+     * Lit un paramètre de connexion `jakarta.persistence.jdbc.*`.
+     */
+    private static String setting(Map<String, Object> values, String name) {
+        Object value = values.get(name);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Récupère les métriques du pool de connexions.
+     *
+     * @return Les métriques du pool.
+     */
+    public ConnectionPoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> unwrapType) {
+        return unwrapType.isInstance(this) || unwrapType.isInstance(dataSource);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (unwrapType.isInstance(this)) {
+            return (T) this;
+        }
+        if (unwrapType.isInstance(dataSource)) {
+            return (T) dataSource;
+        }
+        throw new IllegalArgumentException("Type non supporté : " + unwrapType);
+    }
+
+    @Override
+    public void stop() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+}
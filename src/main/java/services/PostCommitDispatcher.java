@@ -0,0 +1,139 @@
+package services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.jboss.logging.Logger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Écouteur Hibernate unique d'une fabrique de sessions, qui distribue les modifications validées aux
+ * {@link PostCommitListener} abonnés.
+ *
+ * Hibernate refuse deux écouteurs de la même classe, et ne permet pas d'en retirer un : chaque index ou journal
+ * s'abonne donc auprès du distributeur de son unité de persistance ({@link #of(EntityManagerFactory)}),
+ * et s'en désabonne quand il est fermé. Un abonné qui échoue n'empêche pas les autres d'être notifiés.
+ */
+public final class PostCommitDispatcher implements PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final Logger LOG = Logger.getLogger(PostCommitDispatcher.class);
+
+    // Distributeur de chaque fabrique de sessions, oublié avec la fabrique (les clés sont comparées par identité)
+    private static final Map<SessionFactoryImplementor, PostCommitDispatcher> DISPATCHERS = new WeakHashMap<>();
+
+    private final List<PostCommitListener<?>> listeners = new CopyOnWriteArrayList<>();
+
+    private PostCommitDispatcher() {
+    }
+
+    /**
+     * Retourne le distributeur d'une unité de persistance, en l'enregistrant auprès d'Hibernate au premier appel.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @return Le distributeur de l'unité.
+     */
+    public static PostCommitDispatcher of(EntityManagerFactory emf) {
+        synchronized (DISPATCHERS) {
+            return DISPATCHERS.computeIfAbsent(emf.unwrap(SessionFactoryImplementor.class), sessionFactory -> {
+                EventListenerRegistry registry = sessionFactory.getServiceRegistry()
+                        .requireService(EventListenerRegistry.class);
+                PostCommitDispatcher dispatcher = new PostCommitDispatcher();
+                registry.appendListeners(EventType.POST_COMMIT_INSERT, dispatcher);
+                registry.appendListeners(EventType.POST_COMMIT_UPDATE, dispatcher);
+                registry.appendListeners(EventType.POST_COMMIT_DELETE, dispatcher);
+                return dispatcher;
+            });
+        }
+    }
+
+    /**
+     * Abonne un écouteur : il reçoit les modifications validées par les transactions terminées ensuite.
+     *
+     * @param listener L'écouteur.
+     */
+    public void subscribe(PostCommitListener<?> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Désabonne un écouteur.
+     *
+     * @param listener L'écouteur.
+     * @return true si l'écouteur était abonné.
+     */
+    public boolean unsubscribe(PostCommitListener<?> listener) {
+        return listeners.remove(listener);
+    }
+
+    /**
+     * @return Le nombre d'écouteurs abonnés.
+     */
+    public int size() {
+        return listeners.size();
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        for (PostCommitListener<?> listener : listeners) {
+            if (listener.accepts(persister)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        dispatch(listener -> listener.onPostInsert(event));
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        dispatch(listener -> listener.onPostUpdate(event));
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        dispatch(listener -> listener.onPostDelete(event));
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        // Transaction annulée : rien n'a été modifié en base
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        // Transaction annulée : rien n'a été modifié en base
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        // Transaction annulée : rien n'a été modifié en base
+    }
+
+    private void dispatch(Consumer<PostCommitListener<?>> notification) {
+        for (PostCommitListener<?> listener : listeners) {
+            try {
+                notification.accept(listener);
+            } catch (RuntimeException e) {
+                // La transaction est déjà validée : l'échec d'un abonné ne doit priver les autres de la modification
+                LOG.errorf(e, "Échec de l'écouteur %s après commit", listener);
+            }
+        }
+    }
+}
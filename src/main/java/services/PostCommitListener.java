@@ -0,0 +1,95 @@
+package services;
+
+import enumerations.ChangeType;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Écouteur des modifications d'un type d'entité, appelé une fois la transaction validée.
+ *
+ * Les sous-classes maintiennent des structures en mémoire (index, journaux...) à jour avec la base :
+ * une modification annulée par un rollback ne leur est jamais notifiée. Les requêtes de mise à jour
+ * ou de suppression en masse (HQL ou SQL) ne passent pas par les événements d'entité et ne sont pas notifiées.
+ *
+ * Les écouteurs sont abonnés au {@link PostCommitDispatcher} de leur unité de persistance : un même type d'écouteur
+ * peut être enregistré plusieurs fois (un index reconstruit par exemple), et {@link #unregister()} le désabonne.
+ *
+ * @param <T> Le type d'entité écouté (ses sous-classes comprises).
+ */
+public abstract class PostCommitListener<T> {
+
+    private final Class<T> entityType;
+    private volatile PostCommitDispatcher dispatcher;
+
+    /**
+     * Constructeur de l'écouteur.
+     *
+     * @param entityType Le type d'entité écouté.
+     */
+    protected PostCommitListener(Class<T> entityType) {
+        this.entityType = entityType;
+    }
+
+    /**
+     * Enregistre l'écouteur auprès de la fabrique de sessions : il reçoit les modifications validées
+     * par les transactions terminées ensuite.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @throws IllegalStateException si l'écouteur est déjà enregistré.
+     */
+    public synchronized void register(EntityManagerFactory emf) {
+        if (dispatcher != null) {
+            throw new IllegalStateException("Écouteur déjà enregistré : " + this);
+        }
+        dispatcher = PostCommitDispatcher.of(emf);
+        dispatcher.subscribe(this);
+    }
+
+    /**
+     * Désabonne l'écouteur : il ne reçoit plus aucune modification. Sans effet s'il n'est pas enregistré.
+     */
+    public synchronized void unregister() {
+        if (dispatcher != null) {
+            dispatcher.unsubscribe(this);
+            dispatcher = null;
+        }
+    }
+
+    /**
+     * Traite une modification validée.
+     * Appelé dans le thread qui a validé la transaction : le traitement doit être court.
+     *
+     * @param type Le type de modification.
+     * @param id L'identifiant de l'entité.
+     * @param entity L'entité, dans l'état validé (pour une suppression, son dernier état connu).
+     */
+    protected abstract void onCommit(ChangeType type, Object id, T entity);
+
+    /**
+     * Indique si les modifications d'un type d'entité intéressent l'écouteur.
+     */
+    boolean accepts(EntityPersister persister) {
+        return entityType.isAssignableFrom(persister.getMappedClass());
+    }
+
+    void onPostInsert(PostInsertEvent event) {
+        notify(ChangeType.INSERT, event.getId(), event.getEntity());
+    }
+
+    void onPostUpdate(PostUpdateEvent event) {
+        notify(ChangeType.UPDATE, event.getId(), event.getEntity());
+    }
+
+    void onPostDelete(PostDeleteEvent event) {
+        notify(ChangeType.DELETE, event.getId(), event.getEntity());
+    }
+
+    private void notify(ChangeType type, Object id, Object entity) {
+        if (entityType.isInstance(entity)) {
+            onCommit(type, id, entityType.cast(entity));
+        }
+    }
+}
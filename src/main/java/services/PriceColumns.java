@@ -0,0 +1,340 @@
+package services;
+
+import enumerations.ProdType;
+import jakarta.persistence.EntityManagerFactory;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Vue en colonnes des prix du catalogue, pour les filtres par fourchette de prix et les statistiques de prix
+ * (minimum, maximum, moyenne, centiles) par type de produit et par magasin.
+ *
+ * Chaque produit est une ligne de tableaux primitifs : prix en centimes (`long[]`) et identifiant.
+ * Les lignes sont triées par type : les produits d'un type forment une tranche contiguë, et le type d'une ligne
+ * se déduit des bornes des tranches sans colonne supplémentaire. L'appartenance
+ * au catalogue d'un magasin est un ensemble de bits sur les lignes. Les parcours utilisent l'API Vector
+ * (module incubateur `jdk.incubator.vector`, à ajouter au lancement avec `--add-modules jdk.incubator.vector`) :
+ * plusieurs prix sont comparés ou cumulés par instruction.
+ *
+ * La vue est une photographie du catalogue au moment du chargement : elle est reconstruite par {@link #load}.
+ */
+public final class PriceColumns {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final ProdType[] PROD_TYPES = ProdType.values();
+    private static final byte NO_TYPE = -1;
+
+    private final long[] ids;
+    private final long[] cents;
+    private final long[] sortedCents;        // Copie de `cents` dont chaque tranche de type est triée : centiles par type
+    private final int[] typeStart;           // Début de la tranche de chaque type ; la dernière tranche regroupe les produits sans type
+    private final Map<Long, long[]> storeRows;
+
+    private PriceColumns(long[] ids, long[] cents, int[] typeStart, Map<Long, long[]> storeRows) {
+        this.ids = ids;
+        this.cents = cents;
+        this.typeStart = typeStart;
+        this.storeRows = storeRows;
+        this.sortedCents = cents.clone();
+        for (int t = 0; t < typeStart.length - 1; t++) {
+            Arrays.sort(sortedCents, typeStart[t], typeStart[t + 1]);
+        }
+    }
+
+    /**
+     * Charge les prix de tous les produits et les catalogues de tous les magasins.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @return La vue en colonnes.
+     */
+    public static PriceColumns load(EntityManagerFactory emf) {
+        InventoryStreamer streamer = new InventoryStreamer(emf);
+
+        // Lecture par identifiant croissant
+        long[] idsById = new long[1024];
+        long[] centsById = new long[1024];
+        byte[] typesById = new byte[1024];
+        int size = 0;
+        try (Stream<Object[]> rows = streamer.stream(
+                "select p.id, p.price, p.prodType from Product p order by p.id", Object[].class)) {
+            for (var iterator = rows.iterator(); iterator.hasNext(); size++) {
+                Object[] row = iterator.next();
+                if (size == idsById.length) {
+                    idsById = Arrays.copyOf(idsById, size * 2);
+                    centsById = Arrays.copyOf(centsById, size * 2);
+                    typesById = Arrays.copyOf(typesById, size * 2);
+                }
+                idsById[size] = (Long) row[0];
+                centsById[size] = Math.round((Double) row[1] * 100);
+                typesById[size] = row[2] == null ? NO_TYPE : (byte) ((ProdType) row[2]).ordinal();
+            }
+        }
+
+        // Tri par type (tri par dénombrement, stable : l'ordre des identifiants est conservé dans chaque tranche)
+        int[] typeStart = new int[PROD_TYPES.length + 2];
+        for (int i = 0; i < size; i++) {
+            typeStart[slice(typesById[i]) + 1]++;
+        }
+        for (int t = 1; t < typeStart.length; t++) {
+            typeStart[t] += typeStart[t - 1];
+        }
+        int[] next = Arrays.copyOf(typeStart, typeStart.length - 1);
+        int[] rowById = new int[size];
+        long[] ids = new long[size];
+        long[] cents = new long[size];
+        for (int i = 0; i < size; i++) {
+            int row = next[slice(typesById[i])]++;
+            rowById[i] = row;
+            ids[row] = idsById[i];
+            cents[row] = centsById[i];
+        }
+
+        // Catalogue de chaque magasin
+        Map<Long, BitSet> catalogs = new HashMap<>();
+        try (Stream<Object[]> links = streamer.stream(
+                "select s.id, p.id from PetStore s join s.products p", Object[].class)) {
+            for (var iterator = links.iterator(); iterator.hasNext(); ) {
+                Object[] link = iterator.next();
+                int index = Arrays.binarySearch(idsById, 0, size, (Long) link[1]);
+                if (index >= 0) {  // Produit créé après la lecture des prix
+                    catalogs.computeIfAbsent((Long) link[0], id -> new BitSet(ids.length)).set(rowById[index]);
+                }
+            }
+        }
+        Map<Long, long[]> storeRows = new HashMap<>();
+        int words = (size + Long.SIZE - 1) / Long.SIZE;
+        catalogs.forEach((storeId, rows) -> storeRows.put(storeId, Arrays.copyOf(rows.toLongArray(), words)));
+        return new PriceColumns(ids, cents, typeStart, storeRows);
+    }
+
+    /**
+     * @return Le nombre de produits de la vue.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Compte les produits dont le prix est compris dans une fourchette (bornes incluses).
+     *
+     * @param min Le prix minimal.
+     * @param max Le prix maximal.
+     * @param type Le type de produit, ou null pour tous les produits.
+     * @return Le nombre de produits.
+     */
+    public long countInRange(double min, double max, ProdType type) {
+        long low = toCents(min);
+        long high = toCents(max);
+        int from = from(type);
+        int to = to(type);
+        long count = 0;
+        int i = from;
+        for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length()) {
+            LongVector prices = LongVector.fromArray(SPECIES, cents, i);
+            count += prices.compare(VectorOperators.GE, low).and(prices.compare(VectorOperators.LE, high)).trueCount();
+        }
+        for (; i < to; i++) {
+            if (cents[i] >= low && cents[i] <= high) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Recherche les produits dont le prix est compris dans une fourchette (bornes incluses).
+     *
+     * @param min Le prix minimal.
+     * @param max Le prix maximal.
+     * @param type Le type de produit, ou null pour tous les produits.
+     * @return Les identifiants des produits, triés par type puis par identifiant.
+     */
+    public long[] findInRange(double min, double max, ProdType type) {
+        long low = toCents(min);
+        long high = toCents(max);
+        int from = from(type);
+        int to = to(type);
+        long[] found = new long[64];
+        int count = 0;
+        int i = from;
+        for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length()) {
+            LongVector prices = LongVector.fromArray(SPECIES, cents, i);
+            long matches = prices.compare(VectorOperators.GE, low).and(prices.compare(VectorOperators.LE, high)).toLong();
+            while (matches != 0) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = ids[i + Long.numberOfTrailingZeros(matches)];
+                matches &= matches - 1;
+            }
+        }
+        for (; i < to; i++) {
+            if (cents[i] >= low && cents[i] <= high) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Calcule les statistiques de prix d'un type de produit, d'un magasin, ou des produits d'un type d'un magasin.
+     *
+     * @param type Le type de produit, ou null pour tous les types.
+     * @param petStoreId L'identifiant du magasin, ou null pour tout le catalogue.
+     * @return Les statistiques (nombre de produits nul si aucun produit ne correspond).
+     */
+    public PriceStats stats(ProdType type, Long petStoreId) {
+        int from = from(type);
+        int to = to(type);
+        long[] rows = petStoreId == null ? null : storeRows.get(petStoreId);
+        if (petStoreId != null && rows == null) {
+            return PriceStats.EMPTY;
+        }
+        LongVector min = LongVector.broadcast(SPECIES, Long.MAX_VALUE);
+        LongVector max = LongVector.broadcast(SPECIES, Long.MIN_VALUE);
+        LongVector sum = LongVector.zero(SPECIES);
+        long count = 0;
+        int i = from;
+        for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length()) {
+            LongVector prices = LongVector.fromArray(SPECIES, cents, i);
+            if (rows == null) {
+                min = min.min(prices);
+                max = max.max(prices);
+                sum = sum.add(prices);
+                count += SPECIES.length();
+            } else {
+                VectorMask<Long> member = VectorMask.fromLong(SPECIES, bits(rows, i));
+                min = min.blend(min.min(prices), member);
+                max = max.blend(max.max(prices), member);
+                sum = sum.add(prices, member);
+                count += member.trueCount();
+            }
+        }
+        long minCents = min.reduceLanes(VectorOperators.MIN);
+        long maxCents = max.reduceLanes(VectorOperators.MAX);
+        long sumCents = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            if (rows == null || (rows[i >>> 6] & (1L << i)) != 0) {
+                minCents = Math.min(minCents, cents[i]);
+                maxCents = Math.max(maxCents, cents[i]);
+                sumCents += cents[i];
+                count++;
+            }
+        }
+        return count == 0 ? PriceStats.EMPTY
+                : new PriceStats(count, minCents / 100.0, maxCents / 100.0, sumCents / 100.0 / count);
+    }
+
+    /**
+     * Calcule des centiles de prix (méthode du rang le plus proche).
+     * Pour un type sans magasin, les prix sont déjà triés : le calcul est immédiat.
+     *
+     * @param type Le type de produit, ou null pour tous les types.
+     * @param petStoreId L'identifiant du magasin, ou null pour tout le catalogue.
+     * @param ranks Les centiles demandés, entre 0 et 100 (50 pour la médiane).
+     * @return Les prix correspondants, dans l'ordre des centiles demandés, ou un tableau de NaN si aucun produit ne correspond.
+     */
+    public double[] percentiles(ProdType type, Long petStoreId, double... ranks) {
+        long[] sorted;
+        int from;
+        int count;
+        if (type != null && petStoreId == null) {
+            sorted = sortedCents;
+            from = from(type);
+            count = to(type) - from;
+        } else {
+            sorted = select(type, petStoreId);
+            Arrays.sort(sorted);
+            from = 0;
+            count = sorted.length;
+        }
+        double[] prices = new double[ranks.length];
+        for (int r = 0; r < ranks.length; r++) {
+            if (ranks[r] < 0 || ranks[r] > 100) {
+                throw new IllegalArgumentException("Centile hors de [0, 100] : " + ranks[r]);
+            }
+            prices[r] = count == 0 ? Double.NaN
+                    : sorted[from + Math.max(0, (int) Math.ceil(ranks[r] / 100 * count) - 1)] / 100.0;
+        }
+        return prices;
+    }
+
+    /**
+     * Copie les prix des lignes d'un type et d'un magasin.
+     */
+    private long[] select(ProdType type, Long petStoreId) {
+        int from = from(type);
+        int to = to(type);
+        if (petStoreId == null) {
+            return Arrays.copyOfRange(cents, from, to);
+        }
+        long[] rows = storeRows.get(petStoreId);
+        if (rows == null) {
+            return new long[0];
+        }
+        long[] selected = new long[to - from];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if ((rows[i >>> 6] & (1L << i)) != 0) {
+                selected[count++] = cents[i];
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * Bits des lignes [i, i + nombre de voies) d'un ensemble de lignes, à partir du bit de poids faible.
+     */
+    private static long bits(long[] rows, int i) {
+        int word = i >>> 6;
+        int shift = i & 63;
+        long bits = rows[word] >>> shift;
+        if (shift + SPECIES.length() > Long.SIZE && word + 1 < rows.length) {
+            bits |= rows[word + 1] << (Long.SIZE - shift);  // La tranche chevauche deux mots
+        }
+        return bits;
+    }
+
+    private int from(ProdType type) {
+        return type == null ? 0 : typeStart[type.ordinal()];
+    }
+
+    private int to(ProdType type) {
+        return type == null ? ids.length : typeStart[type.ordinal() + 1];
+    }
+
+    /**
+     * Tranche d'un type stocké : son rang, ou la dernière tranche pour les produits sans type.
+     */
+    private static int slice(byte type) {
+        return type == NO_TYPE ? PROD_TYPES.length : type;
+    }
+
+    private static long toCents(double price) {
+        return Math.round(price * 100);
+    }
+
+    /**
+     * Statistiques de prix d'un ensemble de produits.
+     *
+     * @param count Le nombre de produits.
+     * @param min Le prix minimal (NaN si aucun produit).
+     * @param max Le prix maximal (NaN si aucun produit).
+     * @param average Le prix moyen (NaN si aucun produit).
+     */
+    public record PriceStats(long count, double min, double max, double average) {
+
+        static final PriceStats EMPTY = new PriceStats(0, Double.NaN, Double.NaN, Double.NaN);
+    }
+}
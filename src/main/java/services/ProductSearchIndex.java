@@ -0,0 +1,300 @@
+package services;
+
+import entitys.Product;
+import enumerations.ChangeType;
+import enumerations.ProdType;
+import jakarta.persistence.EntityManagerFactory;
+import projections.ProductHit;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Index de recherche des produits en mémoire : recherche par code, complétion sur le label et filtrage par type,
+ * sans aller-retour avec la base.
+ *
+ * Structures :
+ * <ul>
+ *     <li>une table de hachage code → produit ;</li>
+ *     <li>une table triée (skip list) mot normalisé du label → produit, parcourue par préfixe ;</li>
+ *     <li>une liste des identifiants de produits par type.</li>
+ * </ul>
+ *
+ * L'index est chargé une fois depuis la base, puis tenu à jour par un {@link PostCommitListener} à chaque
+ * création, modification ou suppression de produit validée. Les lectures sont sans verrou ; les écritures,
+ * rares, sont sérialisées. Les modifications en masse (HQL) ne sont pas vues : appeler {@link #reload()} après.
+ * Un index qui n'est plus utilisé doit être fermé ({@link #close()}), pour ne plus recevoir les modifications.
+ */
+public class ProductSearchIndex implements AutoCloseable {
+
+    // Séparateur entre le mot et l'identifiant dans les clés de la table triée, inférieur à tout caractère d'un mot
+    private static final char KEY_SEPARATOR = '\0';
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private final EntityManagerFactory emf;
+    private final Map<Long, ProductHit> byId = new ConcurrentHashMap<>();
+    private final Map<String, ProductHit> byCode = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, ProductHit> byWord = new ConcurrentSkipListMap<>();
+    private final Map<ProdType, Set<Long>> byType = new EnumMap<>(ProdType.class);
+    private final Object writeLock = new Object();
+    private final IndexUpdater updater = new IndexUpdater(this);
+
+    // Identifiants modifiés pendant un chargement : la ligne lue par le chargement est peut-être périmée
+    private Set<Long> changedWhileLoading;
+
+    private ProductSearchIndex(EntityManagerFactory emf) {
+        this.emf = emf;
+        for (ProdType type : ProdType.values()) {
+            byType.put(type, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Construit l'index de tous les produits et l'abonne aux modifications validées.
+     *
+     * @param emf La fabrique d'EntityManager de l'unité de persistance.
+     * @return L'index chargé.
+     */
+    public static ProductSearchIndex build(EntityManagerFactory emf) {
+        ProductSearchIndex index = new ProductSearchIndex(emf);
+        index.updater.register(emf);  // Avant le chargement : aucune modification ne peut être manquée
+        try {
+            index.reload();
+        } catch (RuntimeException e) {
+            index.close();
+            throw e;
+        }
+        return index;
+    }
+
+    /**
+     * Désabonne l'index des modifications validées. L'index reste interrogeable, mais n'est plus tenu à jour.
+     */
+    @Override
+    public void close() {
+        updater.unregister();
+    }
+
+    /**
+     * Recharge tout l'index depuis la base, par exemple après une modification en masse des produits.
+     * L'index reste interrogeable pendant le chargement.
+     */
+    public void reload() {
+        synchronized (writeLock) {
+            changedWhileLoading = new LinkedHashSet<>();
+        }
+        try (Stream<ProductHit> hits = new InventoryStreamer(emf).stream(
+                "select new projections.ProductHit(p.id, p.code, p.label, p.prodType) from Product p", ProductHit.class)) {
+            Set<Long> loaded = new LinkedHashSet<>();
+            hits.forEach(hit -> {
+                synchronized (writeLock) {
+                    if (!changedWhileLoading.contains(hit.id())) {
+                        put(hit);
+                    }
+                }
+                loaded.add(hit.id());
+            });
+            synchronized (writeLock) {
+                for (Long id : List.copyOf(byId.keySet())) {
+                    if (!loaded.contains(id) && !changedWhileLoading.contains(id)) {
+                        remove(id);  // Supprimé en base depuis le chargement précédent
+                    }
+                }
+            }
+        } finally {
+            synchronized (writeLock) {
+                changedWhileLoading = null;
+            }
+        }
+    }
+
+    /**
+     * Recherche un produit par code exact.
+     *
+     * @param code Le code du produit.
+     * @return Le produit, ou vide s'il n'existe pas.
+     */
+    public Optional<ProductHit> findByCode(String code) {
+        return code == null ? Optional.empty() : Optional.ofNullable(byCode.get(code));
+    }
+
+    /**
+     * Recherche les produits dont un mot du label commence par un préfixe.
+     * La recherche ignore la casse et les accents : "crOqu" trouve "Croquettes" et "Mini-croquettes".
+     *
+     * @param prefix Le début de mot saisi.
+     * @param limit Le nombre maximal de résultats.
+     * @return Les produits trouvés, dans l'ordre alphabétique du mot reconnu.
+     */
+    public List<ProductHit> findByLabelPrefix(String prefix, int limit) {
+        return search(prefix, null, limit);
+    }
+
+    /**
+     * Liste les produits d'un type.
+     *
+     * @param type Le type de produit.
+     * @return Les produits du type, sans ordre particulier.
+     */
+    public List<ProductHit> findByType(ProdType type) {
+        List<ProductHit> hits = new ArrayList<>();
+        for (Long id : byType.get(type)) {
+            ProductHit hit = byId.get(id);
+            if (hit != null) {
+                hits.add(hit);
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Compte les produits d'un type.
+     *
+     * @param type Le type de produit.
+     * @return Le nombre de produits du type.
+     */
+    public int countByType(ProdType type) {
+        return byType.get(type).size();
+    }
+
+    /**
+     * Recherche les produits d'un type dont un mot du label commence par un préfixe.
+     *
+     * @param prefix Le début de mot saisi.
+     * @param type Le type de produit, ou null pour tous les types.
+     * @param limit Le nombre maximal de résultats.
+     * @return Les produits trouvés, dans l'ordre alphabétique du mot reconnu.
+     */
+    public List<ProductHit> search(String prefix, ProdType type, int limit) {
+        String normalized = prefix == null ? "" : normalize(prefix.strip());
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        // Toutes les clés commençant par le préfixe : [préfixe, préfixe + plus grand caractère)
+        ConcurrentNavigableMap<String, ProductHit> range = byWord.subMap(normalized, true, normalized + Character.MAX_VALUE, false);
+        Map<Long, ProductHit> hits = new LinkedHashMap<>();
+        for (ProductHit hit : range.values()) {
+            if (type == null || hit.type() == type) {
+                hits.putIfAbsent(hit.id(), hit);  // Un produit peut être trouvé par plusieurs mots de son label
+                if (hits.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return List.copyOf(hits.values());
+    }
+
+    /**
+     * @return Le nombre de produits indexés.
+     */
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Applique une modification validée.
+     */
+    void apply(ChangeType type, long id, Product product) {
+        synchronized (writeLock) {
+            if (changedWhileLoading != null) {
+                changedWhileLoading.add(id);
+            }
+            if (type == ChangeType.DELETE) {
+                remove(id);
+            } else {
+                put(new ProductHit(id, product.getCode(), product.getLabel(), product.getProdType()));
+            }
+        }
+    }
+
+    // Appelé avec writeLock
+    private void put(ProductHit hit) {
+        remove(hit.id());
+        byId.put(hit.id(), hit);
+        if (hit.code() != null) {
+            byCode.put(hit.code(), hit);
+        }
+        for (String word : words(hit.label())) {
+            byWord.put(key(word, hit.id()), hit);
+        }
+        if (hit.type() != null) {
+            byType.get(hit.type()).add(hit.id());
+        }
+    }
+
+    // Appelé avec writeLock
+    private void remove(long id) {
+        ProductHit previous = byId.remove(id);
+        if (previous == null) {
+            return;
+        }
+        if (previous.code() != null) {
+            byCode.remove(previous.code(), previous);
+        }
+        for (String word : words(previous.label())) {
+            byWord.remove(key(word, id));
+        }
+        if (previous.type() != null) {
+            byType.get(previous.type()).remove(id);
+        }
+    }
+
+    private static String key(String word, long id) {
+        return word + KEY_SEPARATOR + id;
+    }
+
+    /**
+     * Mots normalisés d'un label, sans doublons.
+     */
+    private static Set<String> words(String label) {
+        Set<String> words = new LinkedHashSet<>();
+        if (label != null) {
+            for (String word : WORD_SEPARATORS.split(normalize(label))) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Met un texte en minuscules et retire ses accents.
+     */
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Écouteur qui reporte dans l'index les modifications de produits validées.
+     */
+    private static final class IndexUpdater extends PostCommitListener<Product> {
+
+        private final ProductSearchIndex index;
+
+        IndexUpdater(ProductSearchIndex index) {
+            super(Product.class);
+            this.index = index;
+        }
+
+        @Override
+        protected void onCommit(ChangeType type, Object id, Product product) {
+            index.apply(type, (Long) id, product);
+        }
+    }
+}
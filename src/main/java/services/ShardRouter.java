@@ -0,0 +1,387 @@
+package services;
+
+import entitys.Adress;
+import entitys.PetStore;
+import enumerations.FetchPlan;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.ehcache.xml.XmlConfiguration;
+import repositories.PetStoreRepository;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Routage des magasins sur plusieurs bases de données (shards), chacune décrite par sa propre fabrique d'EntityManager.
+ *
+ * Chaque magasin est placé, avec tout son agrégat (adresse, animaux, liens vers les produits), sur un seul shard,
+ * choisi à sa création d'après la région de son adresse (le département, tiré du code postal) : les magasins
+ * d'une même région sont sur la même base. Les identifiants générés par les séquences ne sont uniques que dans
+ * un shard : le routeur manipule donc des identifiants globaux, qui portent le numéro du shard dans leurs
+ * {@value #SHARD_BITS} bits de poids faible (voir {@link #globalId(int, long)}). Une fois créé, un magasin est
+ * retrouvé par son identifiant global, sans table de correspondance.
+ *
+ * Les produits sont des données de référence : chaque shard a sa propre copie du catalogue (voir {@link #replicate}),
+ * et un magasin n'est lié qu'aux produits de son shard. Les requêtes qui portent sur tous les magasins sont
+ * exécutées en parallèle sur chaque shard avec les services existants ({@link #fanOut}), puis leurs résultats
+ * sont fusionnés, par exemple :
+ * <pre>
+ * router.fanOut(shard -> new InventoryReports(shard.emf()).animalsPerStore().stream()
+ *         .map(c -> new StoreAnimalCount(shard.globalId(c.petStoreId()), c.petStoreName(), c.animals(), c.cats(), c.fish()))
+ *         .toList());
+ * </pre>
+ *
+ * Les shards ne partagent pas de transaction : une écriture ne porte que sur un shard.
+ */
+public class ShardRouter implements AutoCloseable {
+
+    /** Nombre de bits de l'identifiant global réservés au numéro de shard. */
+    public static final int SHARD_BITS = 8;
+
+    /** Nombre maximal de shards. */
+    public static final int MAX_SHARDS = 1 << SHARD_BITS;
+
+    /** Fichier de configuration des régions du cache de second niveau, recopié pour chaque shard. */
+    private static final String CACHE_CONFIG = "ehcache.xml";
+
+    /** Compteur utilisé pour nommer les gestionnaires de cache des shards, uniques dans la JVM. */
+    private static final AtomicInteger CACHE_MANAGER_COUNTER = new AtomicInteger();
+
+    private final List<Shard> shards;
+    private final ExecutorService fanOutPool;
+
+    /**
+     * Constructeur du routeur sur des fabriques d'EntityManager déjà créées, une par shard.
+     * L'ordre de la liste fixe le numéro des shards : il ne doit plus changer une fois des magasins créés.
+     *
+     * @param emfs Les fabriques d'EntityManager des shards, fermées par {@link #close()}.
+     */
+    public ShardRouter(List<EntityManagerFactory> emfs) {
+        if (emfs.isEmpty() || emfs.size() > MAX_SHARDS) {
+            throw new IllegalArgumentException("Nombre de shards invalide : " + emfs.size() + " (1 à " + MAX_SHARDS + ")");
+        }
+        List<Shard> list = new ArrayList<>(emfs.size());
+        for (int i = 0; i < emfs.size(); i++) {
+            list.add(new Shard(i, emfs.get(i)));
+        }
+        this.shards = List.copyOf(list);
+        AtomicInteger threads = new AtomicInteger();
+        this.fanOutPool = Executors.newFixedThreadPool(emfs.size(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-fan-out-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Crée une fabrique d'EntityManager par base, avec le mapping et la configuration d'une unité de persistance.
+     *
+     * Chaque shard a son propre pool de connexions et son propre cache de second niveau : les régions de `ehcache.xml`
+     * sont recréées dans un gestionnaire de cache par shard, car les identifiants des entités ne sont uniques
+     * que dans un shard.
+     *
+     * @param unit Le nom de l'unité de persistance (par exemple "TpPetstore").
+     * @param jdbcUrls Les URL JDBC des bases, une par shard, dans l'ordre des shards.
+     * @param properties Les propriétés communes à tous les shards, qui remplacent celles de l'unité.
+     * @return Le routeur, à fermer après usage.
+     */
+    public static ShardRouter open(String unit, List<String> jdbcUrls, Map<String, Object> properties) {
+        URL cacheConfig = ShardRouter.class.getClassLoader().getResource(CACHE_CONFIG);
+        if (cacheConfig == null) {
+            throw new IllegalStateException("Configuration du cache introuvable : " + CACHE_CONFIG);
+        }
+        EhcacheCachingProvider provider =
+                (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        List<EntityManagerFactory> emfs = new ArrayList<>(jdbcUrls.size());
+        try {
+            for (String jdbcUrl : jdbcUrls) {
+                CacheManager cacheManager = provider.getCacheManager(
+                        URI.create("urn:tppetstore:shard:" + CACHE_MANAGER_COUNTER.incrementAndGet()),
+                        new XmlConfiguration(cacheConfig));
+                Map<String, Object> shardProperties = new HashMap<>(properties);
+                shardProperties.put("jakarta.persistence.jdbc.url", jdbcUrl);
+                // Fermé par Hibernate avec la fabrique d'EntityManager
+                shardProperties.put("hibernate.javax.cache.cache_manager", cacheManager);
+                emfs.add(PersistenceBootstrap.start(unit, shardProperties));
+            }
+        } catch (RuntimeException e) {
+            emfs.forEach(EntityManagerFactory::close);
+            throw e;
+        }
+        return new ShardRouter(emfs);
+    }
+
+    /**
+     * Calcule l'identifiant global d'une entité à partir de son shard et de son identifiant dans ce shard.
+     *
+     * @param shard Le numéro du shard.
+     * @param localId L'identifiant de l'entité dans le shard.
+     * @return L'identifiant global.
+     */
+    public static long globalId(int shard, long localId) {
+        if (localId < 0 || localId >>> (Long.SIZE - 1 - SHARD_BITS) != 0) {
+            throw new IllegalArgumentException("Identifiant hors limites : " + localId);
+        }
+        return localId << SHARD_BITS | shard;
+    }
+
+    /**
+     * @param globalId Un identifiant global.
+     * @return Le numéro du shard qui contient l'entité.
+     */
+    public static int shardOf(long globalId) {
+        return (int) (globalId & (MAX_SHARDS - 1));
+    }
+
+    /**
+     * @param globalId Un identifiant global.
+     * @return L'identifiant de l'entité dans son shard.
+     */
+    public static long localId(long globalId) {
+        return globalId >>> SHARD_BITS;
+    }
+
+    /**
+     * Retourne la région d'un code postal : son département (deux caractères, trois pour l'outre-mer).
+     *
+     * @param zipCode Le code postal.
+     * @return La région, ou null si le code postal est absent.
+     */
+    public static String region(String zipCode) {
+        if (zipCode == null || zipCode.isBlank()) {
+            return null;
+        }
+        String zip = zipCode.strip();
+        int length = zip.startsWith("97") || zip.startsWith("98") ? 3 : 2;
+        return zip.substring(0, Math.min(length, zip.length()));
+    }
+
+    /**
+     * @return Le nombre de shards.
+     */
+    public int size() {
+        return shards.size();
+    }
+
+    /**
+     * @return Les shards, dans l'ordre de leur numéro.
+     */
+    public List<Shard> shards() {
+        return shards;
+    }
+
+    /**
+     * @param index Le numéro du shard.
+     * @return Le shard.
+     */
+    public Shard shard(int index) {
+        return shards.get(index);
+    }
+
+    /**
+     * Retourne le shard qui contient un magasin.
+     *
+     * @param globalId L'identifiant global du magasin.
+     * @return Le shard du magasin.
+     * @throws IllegalArgumentException si l'identifiant désigne un shard inexistant.
+     */
+    public Shard shardForStore(long globalId) {
+        int index = shardOf(globalId);
+        if (index >= shards.size()) {
+            throw new IllegalArgumentException("Aucun shard " + index + " pour l'identifiant " + globalId);
+        }
+        return shards.get(index);
+    }
+
+    /**
+     * Retourne le shard sur lequel sont placés les magasins d'une région.
+     * Le placement dépend du nombre de shards : l'ajout d'un shard impose de déplacer des magasins.
+     *
+     * @param zipCode Le code postal de l'adresse du magasin.
+     * @return Le shard de la région, le premier shard si le code postal est absent.
+     */
+    public Shard shardForZipCode(String zipCode) {
+        String region = region(zipCode);
+        return region == null ? shards.get(0) : shards.get(Math.floorMod(region.hashCode(), shards.size()));
+    }
+
+    /**
+     * Enregistre un nouveau magasin, avec son adresse, ses animaux et ses produits, sur le shard de sa région.
+     * Les produits liés sont créés sur ce shard s'ils sont nouveaux, et doivent y être déjà présents sinon.
+     *
+     * @param store Le nouveau magasin.
+     * @return L'identifiant global du magasin.
+     */
+    public long save(PetStore store) {
+        Adress adress = store.getAdress();
+        Shard shard = shardForZipCode(adress == null ? null : adress.getZipCode());
+        EntityManager em = shard.emf().createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.persist(store);
+            em.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+        return shard.globalId(store.getId());
+    }
+
+    /**
+     * Recherche un magasin par son identifiant global, sur son seul shard.
+     * Le magasin retourné est détaché, et porte son identifiant dans le shard.
+     *
+     * @param globalId L'identifiant global du magasin.
+     * @param plan Le plan de chargement des associations.
+     * @return Le magasin s'il existe.
+     */
+    public Optional<PetStore> findPetStore(long globalId, FetchPlan plan) {
+        return new PetStoreRepository(shardForStore(globalId).emf()).findById(localId(globalId), plan);
+    }
+
+    /**
+     * Exécute une opération sur le shard d'un magasin.
+     *
+     * @param globalId L'identifiant global du magasin.
+     * @param operation L'opération, qui reçoit le shard du magasin.
+     * @return Le résultat de l'opération.
+     */
+    public <R> R onStoreShard(long globalId, Function<Shard, R> operation) {
+        return operation.apply(shardForStore(globalId));
+    }
+
+    /**
+     * Exécute une requête en parallèle sur tous les shards et concatène les résultats, dans l'ordre des shards.
+     * Si un shard échoue, l'exception est propagée une fois toutes les requêtes terminées.
+     *
+     * @param query La requête, qui reçoit un shard et retourne ses résultats.
+     * @return Les résultats de tous les shards.
+     */
+    public <R> List<R> fanOut(Function<Shard, ? extends Collection<? extends R>> query) {
+        List<CompletableFuture<? extends Collection<? extends R>>> futures = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard), fanOutPool));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        List<R> results = new ArrayList<>();
+        futures.forEach(future -> results.addAll(future.join()));
+        return results;
+    }
+
+    /**
+     * Exécute une requête en parallèle sur tous les shards, puis trie et tronque les résultats fusionnés.
+     * Pour une requête paginée, chaque shard doit retourner au plus `limit` résultats, dans le même ordre.
+     *
+     * @param query La requête, qui reçoit un shard et retourne ses résultats.
+     * @param order L'ordre des résultats fusionnés.
+     * @param limit Le nombre maximal de résultats.
+     * @return Les `limit` premiers résultats de tous les shards.
+     */
+    public <R> List<R> fanOut(Function<Shard, ? extends Collection<? extends R>> query,
+                              Comparator<? super R> order, int limit) {
+        List<R> results = fanOut(query);
+        results.sort(order);
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    /**
+     * Exécute un comptage en parallèle sur tous les shards et additionne les résultats.
+     *
+     * @param count Le comptage, qui reçoit un shard.
+     * @return La somme des comptages.
+     */
+    public long sum(ToLongFunction<Shard> count) {
+        return fanOut(shard -> List.of(count.applyAsLong(shard))).stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Enregistre une donnée de référence (un produit du catalogue, par exemple) sur chaque shard,
+     * en une transaction par shard. La fabrique est appelée une fois par shard : chaque shard a sa propre instance.
+     *
+     * @param factory La fabrique des entités à enregistrer.
+     */
+    public void replicate(Function<Shard, ?> factory) {
+        forEachShard(shard -> {
+            EntityManager em = shard.emf().createEntityManager();
+            try {
+                em.getTransaction().begin();
+                em.persist(factory.apply(shard));
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Exécute une opération en parallèle sur tous les shards.
+     *
+     * @param operation L'opération, qui reçoit un shard.
+     */
+    public void forEachShard(Consumer<Shard> operation) {
+        fanOut(shard -> {
+            operation.accept(shard);
+            return List.of();
+        });
+    }
+
+    /**
+     * Arrête les requêtes parallèles et ferme les fabriques d'EntityManager de tous les shards.
+     */
+    @Override
+    public void close() {
+        fanOutPool.shutdown();
+        shards.forEach(shard -> shard.emf().close());
+    }
+
+    /**
+     * Une base de données du routeur.
+     *
+     * @param index Le numéro du shard, porté par les identifiants globaux.
+     * @param emf La fabrique d'EntityManager de la base.
+     */
+    public record Shard(int index, EntityManagerFactory emf) {
+
+        /**
+         * @param localId L'identifiant d'une entité de ce shard.
+         * @return Son identifiant global.
+         */
+        public long globalId(long localId) {
+            return ShardRouter.globalId(index, localId);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+-- Schéma de référence de l'unité "TpPetstore-production" (mapping JOINED de la hiérarchie Animal).
+-- Toute évolution des entités doit être accompagnée d'une nouvelle migration V<n>__<description>.sql :
+-- un fichier déjà appliqué ne doit plus jamais être modifié (sa somme de contrôle est vérifiée au démarrage).
+
+create sequence adress_seq start with 1 increment by 50 nocache;
+create sequence animal_seq start with 1 increment by 50 nocache;
+create sequence inventory_event_seq start with 1 increment by 50 nocache;
+create sequence petStore_seq start with 1 increment by 50 nocache;
+create sequence product_seq start with 1 increment by 50 nocache;
+create sequence stock_seq start with 1 increment by 50 nocache;
+
+create table adress (
+    ID bigint not null,
+    NUMBER varchar(255),
+    STREET varchar(255),
+    ZIP_CODE varchar(255),
+    CITY varchar(255),
+    UPDATED_AT datetime(6),
+    primary key (ID)
+);
+
+create table petStore (
+    ID bigint not null,
+    STORE_UUID varchar(36) not null,
+    NAME varchar(255),
+    MANAGER_NAME varchar(255),
+    UPDATED_AT datetime(6),
+    adress_id bigint,
+    primary key (ID),
+    constraint UK_PET_STORE_UUID unique (STORE_UUID),
+    constraint UK_PET_STORE_ADRESS unique (adress_id),
+    constraint FK_PET_STORE_ADRESS foreign key (adress_id) references adress (ID)
+);
+
+create table product (
+    ID bigint not null,
+    CODE varchar(255),
+    LABEL varchar(255),
+    TYPE tinyint check (TYPE between 0 and 2),
+    PRICE float(53),
+    UPDATED_AT datetime(6),
+    primary key (ID)
+);
+
+create table petStore_product (
+    ID_PETSTORE bigint not null,
+    ID_PRODUCT bigint not null,
+    primary key (ID_PETSTORE, ID_PRODUCT),
+    constraint FK_PET_STORE_PRODUCT_STORE foreign key (ID_PETSTORE) references petStore (ID),
+    constraint FK_PET_STORE_PRODUCT_PRODUCT foreign key (ID_PRODUCT) references product (ID)
+);
+
+create table animal (
+    ID bigint not null,
+    BIRTH_DATE datetime(6),
+    COLOR varchar(255),
+    ID_PET_STORE bigint,
+    primary key (ID),
+    constraint FK_ANIMAL_PET_STORE foreign key (ID_PET_STORE) references petStore (ID)
+);
+
+create table CAT (
+    ID bigint not null,
+    CHIPLD varchar(255),
+    primary key (ID),
+    constraint FK_CAT_ANIMAL foreign key (ID) references animal (ID)
+);
+
+create table FISH (
+    ID bigint not null,
+    FISH_LIV_ENV tinyint check (FISH_LIV_ENV between 0 and 1),
+    primary key (ID),
+    constraint FK_FISH_ANIMAL foreign key (ID) references animal (ID)
+);
+
+create table stock (
+    ID bigint not null,
+    ID_PET_STORE bigint not null,
+    ID_PRODUCT bigint not null,
+    QUANTITY integer not null,
+    VERSION bigint not null,
+    primary key (ID),
+    constraint UK_STOCK_STORE_PRODUCT unique (ID_PET_STORE, ID_PRODUCT),
+    constraint FK_STOCK_PET_STORE foreign key (ID_PET_STORE) references petStore (ID),
+    constraint FK_STOCK_PRODUCT foreign key (ID_PRODUCT) references product (ID)
+);
+
+create table inventory_event (
+    ID bigint not null,
+    EVENT_TYPE enum ('ANIMAL_TRANSFER','RESTOCK','SALE') not null,
+    OCCURRED_AT datetime(6) not null,
+    ID_PET_STORE bigint,
+    ID_TARGET_PET_STORE bigint,
+    ID_PRODUCT bigint,
+    ID_ANIMAL bigint,
+    QUANTITY integer not null,
+    primary key (ID)
+);
@@ -0,0 +1,4 @@
+-- Index de recherche des magasins par localisation (code postal, département, ville)
+
+create index IDX_ADRESS_ZIP_CODE on adress (ZIP_CODE);
+create index IDX_ADRESS_CITY on adress (CITY);
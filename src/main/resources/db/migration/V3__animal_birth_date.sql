@@ -0,0 +1,8 @@
+-- Date de naissance des animaux en date seule (LocalDate), et index des recherches par âge
+
+-- Les heures sont d'abord mises à zéro : la conversion en date ne tronque alors aucune valeur (mode strict)
+update animal set BIRTH_DATE = cast(BIRTH_DATE as date) where BIRTH_DATE is not null;
+alter table animal modify BIRTH_DATE date;
+
+create index IDX_ANIMAL_STORE_BIRTH_DATE on animal (ID_PET_STORE, BIRTH_DATE);
+create index IDX_ANIMAL_BIRTH_DATE on animal (BIRTH_DATE);
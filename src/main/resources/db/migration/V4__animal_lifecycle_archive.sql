@@ -0,0 +1,20 @@
+-- Cycle de vie des animaux et table d'archive des animaux vendus ou cédés (AnimalArchiver)
+
+alter table animal add column STATUS enum ('AVAILABLE','SOLD','TRANSFERRED_OUT') not null default 'AVAILABLE';
+alter table animal add column STATUS_CHANGED_AT datetime(6);
+create index IDX_ANIMAL_STATUS on animal (STATUS, STATUS_CHANGED_AT);
+
+create table animal_archive (
+    ID bigint not null,
+    SPECIES varchar(20) not null,
+    BIRTH_DATE date,
+    COLOR varchar(255),
+    ID_PET_STORE bigint,
+    STATUS enum ('AVAILABLE','SOLD','TRANSFERRED_OUT') not null,
+    STATUS_CHANGED_AT datetime(6),
+    ARCHIVED_AT datetime(6) not null,
+    CHIPLD varchar(255),
+    FISH_LIV_ENV tinyint check (FISH_LIV_ENV between 0 and 1),
+    primary key (ID)
+);
+create index IDX_ANIMAL_ARCHIVE_STORE on animal_archive (ID_PET_STORE, STATUS_CHANGED_AT);
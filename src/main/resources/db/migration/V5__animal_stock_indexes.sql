@@ -0,0 +1,14 @@
+-- Index des recherches par âge, limitées aux animaux en magasin (STATUS = 'AVAILABLE')
+
+-- Le statut complète les index de date de naissance : les comptages restent lus dans l'index seul, et les animaux
+-- sont toujours parcourus par date de naissance. Chaque index est créé avant la suppression de l'ancien :
+-- la clé étrangère ID_PET_STORE garde toujours un index.
+create index IDX_ANIMAL_STORE_BIRTH_DATE_STATUS on animal (ID_PET_STORE, BIRTH_DATE, STATUS);
+drop index IDX_ANIMAL_STORE_BIRTH_DATE on animal;
+create index IDX_ANIMAL_BIRTH_DATE_STATUS on animal (BIRTH_DATE, STATUS);
+drop index IDX_ANIMAL_BIRTH_DATE on animal;
+
+-- Index des animaux à archiver, par date de changement de statut d'abord : presque tous les animaux sont disponibles,
+-- un index commençant par le statut n'aide aucune recherche des animaux en magasin (et tromperait l'optimiseur)
+create index IDX_ANIMAL_STATUS_CHANGED_AT on animal (STATUS_CHANGED_AT, STATUS);
+drop index IDX_ANIMAL_STATUS on animal;
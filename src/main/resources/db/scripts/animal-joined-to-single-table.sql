@@ -0,0 +1,28 @@
+-- Migration de la hiérarchie Animal de la stratégie JOINED vers SINGLE_TABLE (MariaDB).
+-- À exécuter une seule fois, application arrêtée, avant de démarrer sur l'unité "TpPetstore-single-table".
+-- Attention : sous MariaDB les ALTER/DROP TABLE valident implicitement la transaction en cours,
+-- faire une sauvegarde des tables animal, CAT et FISH avant de lancer le script.
+
+-- 1. Colonnes de la table unique : discriminant et colonnes propres aux sous-classes
+ALTER TABLE animal
+    ADD COLUMN ANIMAL_TYPE VARCHAR(10) NOT NULL DEFAULT 'ANIMAL',
+    ADD COLUMN CHIPLD VARCHAR(255) NULL,
+    ADD COLUMN FISH_LIV_ENV TINYINT NULL;
+
+-- 2. Recopie des données des sous-classes
+UPDATE animal a
+    JOIN CAT c ON c.ID = a.ID
+SET a.ANIMAL_TYPE = 'CAT',
+    a.CHIPLD      = c.CHIPLD;
+
+UPDATE animal a
+    JOIN FISH f ON f.ID = a.ID
+SET a.ANIMAL_TYPE  = 'FISH',
+    a.FISH_LIV_ENV = f.FISH_LIV_ENV;
+
+-- 3. Suppression des tables des sous-classes, devenues inutiles
+DROP TABLE CAT;
+DROP TABLE FISH;
+
+-- 4. Le discriminant n'a plus de valeur par défaut : Hibernate le renseigne à chaque insertion
+ALTER TABLE animal ALTER COLUMN ANIMAL_TYPE DROP DEFAULT;